@@ -1,78 +1,453 @@
 package com.coffrefort.client;
 
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 
 import com.coffrefort.client.model.FileEntry;
 import com.coffrefort.client.model.NodeItem;
+import com.coffrefort.client.model.PartialDownload;
 import com.coffrefort.client.model.Quota;
+import com.coffrefort.client.model.UploadSession;
+import com.coffrefort.client.model.VaultTree;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ForwardingSink;
+import okio.Okio;
 
 /**
  * Client d'API pour communiquer avec le backend.
  * Gère l'authentification JWT et les appels HTTP.
+ *
+ * Chaque appel existe en deux variantes : bloquante (ex. {@code listFolders()})
+ * et asynchrone (ex. {@code listFoldersAsync()}). Les variantes asynchrones
+ * s'appuient sur {@code Call.enqueue} et le {@link Dispatcher} d'OkHttp : aucun
+ * thread n'est créé par appel, le nombre de requêtes en vol est borné par le dispatcher.
+ *
+ * Les échecs temporaires (erreur réseau, 408, 429, 5xx) sont réessayés avec un backoff
+ * exponentiel, uniquement pour les requêtes rejouables (voir {@link RetryPolicy}) :
+ * les créations (POST /folders, POST /files) portent une clé d'idempotence pour ne pas
+ * être dupliquées. Les GET asynchrones peuvent en plus être doublés lorsqu'ils tardent
+ * (voir {@link #setHedgingPercentile(double)}).
  */
 public class ApiClient {
+    /** Nombre maximal de requêtes simultanées (tous hôtes confondus). */
+    private static final int MAX_REQUESTS = 64;
+    /** Nombre maximal de requêtes simultanées vers le backend. */
+    private static final int MAX_REQUESTS_PER_HOST = 16;
+    /** Connexions inactives conservées par défaut : de quoi servir toutes les requêtes parallèles vers le backend. */
+    private static final int DEFAULT_MAX_IDLE_CONNECTIONS = MAX_REQUESTS_PER_HOST;
+    /** Durée de conservation par défaut d'une connexion inactive. */
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 5 * 60;
+    /** Connexions ouvertes à l'avance : la connexion, puis dossiers et fichiers chargés en parallèle. */
+    private static final int PREWARM_CONNECTIONS = 2;
+    /** Nombre de suppressions simultanées par défaut dans un lot (reste de la marge pour les autres appels). */
+    private static final int DEFAULT_BATCH_CONCURRENCY = 8;
+    /** Taille par défaut d'un bloc d'upload reprenable. */
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    /** Nombre de blocs envoyés en parallèle par défaut pour un upload reprenable. */
+    private static final int DEFAULT_UPLOAD_PARALLELISM = 4;
+    /** Envois d'un bloc dont l'empreinte ne correspond pas à celle calculée par le serveur, avant abandon. */
+    private static final int CHUNK_DIGEST_ATTEMPTS = 3;
+    /** Calculs d'empreinte simultanés : lecture disque intensive, inutile d'en lancer davantage. */
+    private static final int HASH_THREADS = 2;
+    /** Tampon direct réutilisé pendant tout un téléchargement : mémoire constante quelle que soit la taille */
+    private static final int DOWNLOAD_BUFFER_SIZE = 256 * 1024;
+    /** Taille à partir de laquelle un téléchargement est réparti sur plusieurs connexions. */
+    private static final long DEFAULT_SEGMENTED_THRESHOLD = 32L * 1024 * 1024;
+    /** Nombre maximal de connexions par téléchargement segmenté. */
+    private static final int DEFAULT_MAX_DOWNLOAD_SEGMENTS = 8;
+    /** Connexions ouvertes au départ d'un téléchargement segmenté, avant toute mesure. */
+    private static final int INITIAL_DOWNLOAD_SEGMENTS = 2;
+    /** Plus petite plage confiée à une connexion : en dessous, l'ouverture coûte plus qu'elle ne rapporte. */
+    private static final long MIN_SEGMENT_SIZE = 4L * 1024 * 1024;
+    /** Taille maximale du cache HTTP sur disque. */
+    private static final long CACHE_SIZE = 50L * 1024 * 1024;
+    /** Taille des lots transmis au {@link ListingListener}. */
+    private static final int LISTING_BATCH_SIZE = 500;
+    /** Nombre d'essais par défaut (premier envoi compris). */
+    private static final int DEFAULT_MAX_ATTEMPTS = 4;
+    private static final long RETRY_BASE_DELAY_MS = 200;
+    private static final long RETRY_MAX_DELAY_MS = 5000;
+    /** Nombre de mesures nécessaires avant de doubler une requête. */
+    private static final int HEDGE_MIN_SAMPLES = 20;
+    /** Délai minimal avant de doubler une requête, pour ne pas doubler les réponses rapides. */
+    private static final long HEDGE_MIN_DELAY_MS = 50;
+    /**
+     * Les listes sont toujours revalidées auprès du serveur (If-None-Match) :
+     * une liste inchangée revient en 304 et le corps est lu depuis le cache disque.
+     */
+    private static final CacheControl REVALIDATE = new CacheControl.Builder()
+        .maxAge(0, TimeUnit.SECONDS)
+        .build();
+
     private String baseUrl = "http://localhost:8888/";
     private String authToken;
+    private int pageSize = 0;
+    private RetryPolicy retryPolicy = new RetryPolicy(DEFAULT_MAX_ATTEMPTS, RETRY_BASE_DELAY_MS, RETRY_MAX_DELAY_MS);
+    private double hedgingPercentile = 0;
+    private int batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int uploadParallelism = DEFAULT_UPLOAD_PARALLELISM;
+    private long segmentedThreshold = DEFAULT_SEGMENTED_THRESHOLD;
+    private int maxDownloadSegments = DEFAULT_MAX_DOWNLOAD_SEGMENTS;
+    private volatile boolean deduplication = true;
+    private volatile boolean uploadCompression = false;
+    /** Débits partagés par tous les transferts ; les appels de métadonnées n'y passent pas. */
+    private final BandwidthLimiter uploadLimiter = new BandwidthLimiter();
+    private final BandwidthLimiter downloadLimiter = new BandwidthLimiter();
+    /** Uploads en cours par empreinte de contenu, pour ne transférer qu'une fois les fichiers identiques. */
+    private final Map<String, CompletableFuture<Integer>> uploadsByHash = new ConcurrentHashMap<>();
+    private final ExecutorService hashExecutor = Executors.newFixedThreadPool(HASH_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "file-hash");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LatencyTracker getLatencies = new LatencyTracker(100);
     
-    private final OkHttpClient httpClient;
+    private volatile OkHttpClient httpClient;
+    private final Cache httpCache;
     private final ObjectMapper jsonMapper;
+    private final JsonListingReader listingReader;
+    private final UploadSessionStore uploadStore;
+    private final PartialDownloadStore downloadStore;
+    /** Contenus téléchargés dont l'empreinte ne correspond pas, conservés pour examen */
+    private final File quarantineDirectory;
 
     public ApiClient() {
+        this(new File(System.getProperty("user.home"), ".coffrefort" + File.separator + "http-cache"));
+    }
+
+    /**
+     * @param cacheDirectory répertoire du cache HTTP (réponses des listes, revalidées par ETag) ;
+     *                       les sessions d'upload sont rangées à côté, dans {@code uploads}
+     */
+    public ApiClient(File cacheDirectory) {
+        this(cacheDirectory, new File(cacheDirectory.getAbsoluteFile().getParentFile(), "uploads"));
+    }
+
+    /**
+     * @param cacheDirectory répertoire du cache HTTP
+     * @param uploadsDirectory répertoire des sessions d'upload reprenables ; les téléchargements
+     *                         interrompus sont référencés à côté, dans {@code downloads}, et les
+     *                         contenus reçus altérés mis en quarantaine dans {@code quarantine}
+     */
+    public ApiClient(File cacheDirectory, File uploadsDirectory) {
+        // Threads démons : les appels en cours ne doivent pas empêcher la fermeture de l'application
+        ExecutorService dispatcherExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "api-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Dispatcher dispatcher = new Dispatcher(dispatcherExecutor);
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        this.httpCache = new Cache(cacheDirectory, CACHE_SIZE);
+
+        // HTTP/2 est négocié par ALPN lorsque le backend est en HTTPS ; HTTP/1.1 sinon
         this.httpClient = new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectionPool(new ConnectionPool(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS))
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .cache(httpCache)
             .connectTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
             .readTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
             .writeTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
             .build();
         this.jsonMapper = new ObjectMapper();
+        this.listingReader = new JsonListingReader(jsonMapper.getFactory());
+        this.uploadStore = new UploadSessionStore(uploadsDirectory, jsonMapper);
+        this.downloadStore = new PartialDownloadStore(
+            new File(uploadsDirectory.getAbsoluteFile().getParentFile(), "downloads"), jsonMapper);
+        this.quarantineDirectory = new File(uploadsDirectory.getAbsoluteFile().getParentFile(), "quarantine");
     }
 
     public void setBaseUrl(String baseUrl) {
         this.baseUrl = baseUrl;
     }
 
+    /**
+     * Remplace le pool de connexions (les connexions ouvertes de l'ancien pool sont fermées).
+     * @param maxIdleConnections nombre de connexions inactives conservées
+     * @param keepAliveSeconds durée pendant laquelle une connexion inactive reste réutilisable
+     */
+    public void setConnectionPool(int maxIdleConnections, long keepAliveSeconds) {
+        ConnectionPool previous = httpClient.connectionPool();
+        httpClient = httpClient.newBuilder()
+            .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+            .build();
+        previous.evictAll();
+    }
+
+    /**
+     * Ouvre à l'avance des connexions vers le backend (DNS, TCP, TLS) pendant que l'écran
+     * de connexion est affiché : la connexion puis le premier chargement les réutilisent.
+     * Ne fait rien si des connexions inactives sont déjà disponibles dans le pool.
+     * Les erreurs sont ignorées, l'appel réel les signalera.
+     */
+    public void prewarmAsync() {
+        if (httpClient.connectionPool().idleConnectionCount() > 0) {
+            return;
+        }
+        HttpUrl url = HttpUrl.parse(baseUrl);
+        if (url == null) {
+            return;
+        }
+        // HEAD sans authentification : seule l'ouverture de la connexion compte, pas la réponse
+        Request request = new Request.Builder()
+            .url(url)
+            .head()
+            .cacheControl(CacheControl.FORCE_NETWORK)
+            .build();
+        for (int i = 0; i < PREWARM_CONNECTIONS; i++) {
+            httpClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    System.out.println("Préchauffage de la connexion impossible: " + e.getMessage());
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                }
+            });
+        }
+    }
+
     public String getBaseUrl() {
         return baseUrl;
     }
 
+    /**
+     * Active la pagination par curseur des listes ({@code ?limit=N&cursor=...}).
+     * @param pageSize nombre d'éléments par page, 0 pour tout récupérer en une requête
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(0, pageSize);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @param maxAttempts nombre d'essais par requête rejouable, premier envoi compris (1 = pas de nouvel essai)
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.retryPolicy = new RetryPolicy(maxAttempts, RETRY_BASE_DELAY_MS, RETRY_MAX_DELAY_MS);
+    }
+
+    public int getMaxAttempts() {
+        return retryPolicy.getMaxAttempts();
+    }
+
+    /**
+     * Active les requêtes doublées : un GET asynchrone sans réponse au-delà de ce percentile
+     * des durées récentes est renvoyé une seconde fois ; la première réponse l'emporte
+     * et l'autre appel est annulé.
+     * @param percentile entre 0 et 1 (ex. 0.95), 0 pour désactiver
+     */
+    public void setHedgingPercentile(double percentile) {
+        this.hedgingPercentile = Math.max(0, Math.min(1, percentile));
+    }
+
+    public double getHedgingPercentile() {
+        return hedgingPercentile;
+    }
+
+    /**
+     * @param batchConcurrency nombre maximal de requêtes en vol pour une opération par lot (ex. suppression multiple)
+     */
+    public void setBatchConcurrency(int batchConcurrency) {
+        this.batchConcurrency = Math.max(1, batchConcurrency);
+    }
+
+    public int getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    /**
+     * @param chunkSize taille demandée pour les blocs des nouveaux uploads reprenables (le serveur peut l'ajuster)
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(64 * 1024, chunkSize);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param uploadParallelism nombre de blocs d'un même fichier envoyés simultanément, chacun sur sa
+     *                          propre connexion en HTTP/1.1 (1 = envoi séquentiel)
+     */
+    public void setUploadParallelism(int uploadParallelism) {
+        this.uploadParallelism = Math.max(1, Math.min(uploadParallelism, MAX_REQUESTS_PER_HOST));
+    }
+
+    /**
+     * @param maxDownloadSegments nombre maximal de connexions pour un même téléchargement
+     *                            (1 = téléchargement séquentiel)
+     * @see #setSegmentedThreshold(long)
+     */
+    public void setMaxDownloadSegments(int maxDownloadSegments) {
+        this.maxDownloadSegments = Math.max(1, Math.min(maxDownloadSegments, MAX_REQUESTS_PER_HOST));
+    }
+
+    public int getMaxDownloadSegments() {
+        return maxDownloadSegments;
+    }
+
+    /**
+     * @param segmentedThreshold taille à partir de laquelle un fichier est téléchargé par plages parallèles
+     */
+    public void setSegmentedThreshold(long segmentedThreshold) {
+        this.segmentedThreshold = Math.max(2 * MIN_SEGMENT_SIZE, segmentedThreshold);
+    }
+
+    /**
+     * Active ou non la déduplication par contenu avant upload (activée par défaut).
+     * @see #uploadFileDedupAsync(File, Integer, LongConsumer)
+     */
+    public void setDeduplication(boolean deduplication) {
+        this.deduplication = deduplication;
+    }
+
+    /**
+     * Active ou non la compression gzip des uploads (désactivée par défaut : le serveur doit
+     * accepter {@code Content-Encoding: gzip} sur les requêtes). Seuls les fichiers dont
+     * l'échantillon se compresse bien sont concernés, voir {@link UploadCompression}.
+     */
+    public void setUploadCompression(boolean uploadCompression) {
+        this.uploadCompression = uploadCompression;
+    }
+
+    public boolean isUploadCompression() {
+        return uploadCompression;
+    }
+
+    /**
+     * Limite le débit cumulé des uploads (contenu des fichiers uniquement). Prend effet
+     * immédiatement, y compris sur les envois en cours.
+     * @param bytesPerSecond débit maximal, 0 pour illimité
+     */
+    public void setUploadLimit(long bytesPerSecond) {
+        uploadLimiter.setRate(bytesPerSecond);
+    }
+
+    public long getUploadLimit() {
+        return uploadLimiter.getRate();
+    }
+
+    /**
+     * Limite le débit cumulé des téléchargements de fichiers, comme {@link #setUploadLimit(long)}.
+     * @param bytesPerSecond débit maximal, 0 pour illimité
+     */
+    public void setDownloadLimit(long bytesPerSecond) {
+        downloadLimiter.setRate(bytesPerSecond);
+    }
+
+    public long getDownloadLimit() {
+        return downloadLimiter.getRate();
+    }
+
+    public int getUploadParallelism() {
+        return uploadParallelism;
+    }
+
     public boolean login(String email, String password) throws IOException {
+        return execute(buildLoginRequest(email, password), this::handleLoginResponse);
+    }
+
+    /**
+     * Variante asynchrone de {@link #login(String, String)}.
+     */
+    public CompletableFuture<Boolean> loginAsync(String email, String password) {
+        try {
+            return enqueue(buildLoginRequest(email, password), this::handleLoginResponse);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Request buildLoginRequest(String email, String password) throws IOException {
         String jsonBody = jsonMapper.writeValueAsString(new LoginRequest(email, password));
         
         RequestBody body = RequestBody.create(jsonBody, MediaType.parse("application/json"));
         
-        Request request = new Request.Builder()
+        return new Request.Builder()
             .url(baseUrl + "auth/login")
             .post(body)
             .addHeader("Content-Type", "application/json")
             .build();
+    }
+
+    private boolean handleLoginResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "";
+            throw new IOException("Échec de la connexion: " + response.code() + " - " + errorBody);
+        }
         
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                throw new IOException("Échec de la connexion: " + response.code() + " - " + errorBody);
-            }
-            
-            String responseBody = response.body().string();
-            JsonNode jsonResponse = jsonMapper.readTree(responseBody);
-            
-            if (jsonResponse.has("token")) {
-                this.authToken = jsonResponse.get("token").asText();
-                return true;
-            } else {
-                throw new IOException("Réponse invalide: token manquant");
-            }
+        String responseBody = response.body().string();
+        JsonNode jsonResponse = jsonMapper.readTree(responseBody);
+        
+        if (jsonResponse.has("token")) {
+            this.authToken = jsonResponse.get("token").asText();
+            return true;
+        } else {
+            throw new IOException("Réponse invalide: token manquant");
         }
     }
 
@@ -86,244 +461,402 @@ public class ApiClient {
 
     public void clearToken() {
         this.authToken = null;
+        // Les listes en cache appartiennent à l'utilisateur qui se déconnecte
+        try {
+            httpCache.evictAll();
+        } catch (IOException e) {
+            System.err.println("Impossible de vider le cache HTTP: " + e.getMessage());
+        }
     }
 
     public void logout() throws IOException {
         clearToken();
     }
-
     /**
      * Récupère la liste des dossiers depuis l'API
-     * GET /folders
+     * GET /folders (toutes les pages si la pagination est activée)
      */
     public List<FolderDto> listFolders() throws IOException {
+        List<FolderDto> folders = new ArrayList<>();
+        listFolders(folders::add);
+        return folders;
+    }
+
+    /**
+     * Variante en flux de {@link #listFolders()} : chaque dossier est transmis
+     * au consommateur dès qu'il est décodé, sans construire de liste intermédiaire.
+     */
+    public void listFolders(Consumer<FolderDto> consumer) throws IOException {
+        String cursor = null;
+        do {
+            cursor = execute(buildListFoldersRequest(cursor), response -> streamFolders(response, consumer));
+        } while (cursor != null);
+    }
+
+    /**
+     * Variante asynchrone de {@link #listFolders()}.
+     */
+    public CompletableFuture<List<FolderDto>> listFoldersAsync() {
+        List<FolderDto> folders = new ArrayList<>();
+        return fetchFolderPages(null, folders::add, () -> { }).thenApply(done -> folders);
+    }
+
+    /**
+     * Récupère les pages de dossiers l'une après l'autre à partir du curseur donné.
+     * {@code onPageEnd} est appelé après le décodage de chaque page.
+     */
+    private CompletableFuture<Void> fetchFolderPages(String cursor, Consumer<FolderDto> consumer, Runnable onPageEnd) {
+        CompletableFuture<String> page;
+        try {
+            page = enqueue(buildListFoldersRequest(cursor), response -> {
+                String nextCursor = streamFolders(response, consumer);
+                onPageEnd.run();
+                return nextCursor;
+            });
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return page.thenCompose(nextCursor -> nextCursor == null
+            ? CompletableFuture.completedFuture(null)
+            : fetchFolderPages(nextCursor, consumer, onPageEnd));
+    }
+
+    private Request buildListFoldersRequest(String cursor) throws IOException {
         if (!isAuthenticated()) {
             throw new IOException("Non authentifié. Veuillez vous connecter d'abord.");
         }
         
-        Request request = new Request.Builder()
-            .url(baseUrl + "folders")
+        return new Request.Builder()
+            .url(listingUrl("folders", cursor))
             .get()
+            .cacheControl(REVALIDATE)
             .addHeader("Authorization", "Bearer " + authToken)
             .addHeader("Accept", "application/json")
             .build();
-        
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                throw new IOException("Échec de récupération des dossiers: " + response.code() + " - " + errorBody);
-            }
-            
-            String responseBody = response.body().string();
-            JsonNode jsonResponse = jsonMapper.readTree(responseBody);
-            
-            List<FolderDto> folders = new ArrayList<>();
-            
-            if (jsonResponse.isArray()) {
-                for (JsonNode folderNode : jsonResponse) {
-                    folders.add(parseFolderDto(folderNode));
-                }
-            } else if (jsonResponse.has("folders") || jsonResponse.has("data")) {
-                JsonNode foldersArray = jsonResponse.has("folders") ? 
-                    jsonResponse.get("folders") : jsonResponse.get("data");
-                for (JsonNode folderNode : foldersArray) {
-                    folders.add(parseFolderDto(folderNode));
-                }
-            }
-            
-            return folders;
-        }
     }
 
     /**
-     * Parse un nœud JSON en FolderDto
+     * Décode la réponse au fil de l'eau, dossier par dossier
+     * @return le curseur de la page suivante, ou null
      */
-    private FolderDto parseFolderDto(JsonNode node) {
-        FolderDto folder = new FolderDto();
-        folder.id = node.has("id") ? node.get("id").asInt() : null;
-        folder.name = node.has("name") ? node.get("name").asText() : "Sans nom";
-        folder.parentId = node.has("parent_id") && !node.get("parent_id").isNull() ? 
-            node.get("parent_id").asInt() : null;
-        return folder;
+    private String streamFolders(Response response, Consumer<FolderDto> consumer) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "";
+            throw new IOException("Échec de récupération des dossiers: " + response.code() + " - " + errorBody);
+        }
+        
+        try (InputStream in = response.body().byteStream()) {
+            return listingReader.readFolders(in, consumer);
+        }
     }
 
     /**
      * Récupère la liste des fichiers depuis l'API
-     * GET /files
+     * GET /files (toutes les pages si la pagination est activée)
      */
     public List<FileDto> listFiles() throws IOException {
+        List<FileDto> files = new ArrayList<>();
+        listFiles(files::add);
+        return files;
+    }
+
+    /**
+     * Variante en flux de {@link #listFiles()} : chaque fichier est transmis
+     * au consommateur dès qu'il est décodé, sans construire de liste intermédiaire.
+     */
+    public void listFiles(Consumer<FileDto> consumer) throws IOException {
+        String cursor = null;
+        do {
+            cursor = execute(buildListFilesRequest(cursor), response -> streamFiles(response, consumer));
+        } while (cursor != null);
+    }
+
+    /**
+     * Variante asynchrone de {@link #listFiles()}.
+     */
+    public CompletableFuture<List<FileDto>> listFilesAsync() {
+        List<FileDto> files = new ArrayList<>();
+        return fetchFilePages(null, files::add, () -> { }).thenApply(done -> files);
+    }
+
+    /**
+     * Récupère les pages de fichiers l'une après l'autre à partir du curseur donné.
+     * {@code onPageEnd} est appelé après le décodage de chaque page.
+     */
+    private CompletableFuture<Void> fetchFilePages(String cursor, Consumer<FileDto> consumer, Runnable onPageEnd) {
+        CompletableFuture<String> page;
+        try {
+            page = enqueue(buildListFilesRequest(cursor), response -> {
+                String nextCursor = streamFiles(response, consumer);
+                onPageEnd.run();
+                return nextCursor;
+            });
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return page.thenCompose(nextCursor -> nextCursor == null
+            ? CompletableFuture.completedFuture(null)
+            : fetchFilePages(nextCursor, consumer, onPageEnd));
+    }
+
+    private Request buildListFilesRequest(String cursor) throws IOException {
         if (!isAuthenticated()) {
             throw new IOException("Non authentifié. Veuillez vous connecter d'abord.");
         }
         
-        Request request = new Request.Builder()
-            .url(baseUrl + "files")
+        return new Request.Builder()
+            .url(listingUrl("files", cursor))
             .get()
+            .cacheControl(REVALIDATE)
             .addHeader("Authorization", "Bearer " + authToken)
             .addHeader("Accept", "application/json")
             .build();
+    }
+
+    /**
+     * Décode la réponse au fil de l'eau, fichier par fichier
+     * @return le curseur de la page suivante, ou null
+     */
+    private String streamFiles(Response response, Consumer<FileDto> consumer) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "";
+            throw new IOException("Échec de récupération des fichiers: " + response.code() + " - " + errorBody);
+        }
         
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                throw new IOException("Échec de récupération des fichiers: " + response.code() + " - " + errorBody);
-            }
-            
-            String responseBody = response.body().string();
-            JsonNode jsonResponse = jsonMapper.readTree(responseBody);
-            
-            List<FileDto> files = new ArrayList<>();
-            
-            if (jsonResponse.isArray()) {
-                for (JsonNode fileNode : jsonResponse) {
-                    files.add(parseFileDto(fileNode));
+        try (InputStream in = response.body().byteStream()) {
+            return listingReader.readFiles(in, consumer);
+        }
+    }
+
+    /**
+     * Statistiques du cache HTTP depuis le démarrage.
+     */
+    public CacheStats getCacheStats() {
+        return new CacheStats(httpCache.requestCount(), httpCache.networkCount(), httpCache.hitCount());
+    }
+
+    /**
+     * URL d'une liste, avec les paramètres de pagination si elle est activée
+     * (ex. {@code files?limit=500&cursor=abc}).
+     */
+    private HttpUrl listingUrl(String path, String cursor) throws IOException {
+        HttpUrl url = HttpUrl.parse(baseUrl + path);
+        if (url == null) {
+            throw new IOException("URL invalide: " + baseUrl + path);
+        }
+        if (pageSize <= 0) {
+            return url;
+        }
+        HttpUrl.Builder builder = url.newBuilder().addQueryParameter("limit", String.valueOf(pageSize));
+        if (cursor != null) {
+            builder.addQueryParameter("cursor", cursor);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Construit l'arborescence complète des dossiers avec leurs fichiers.
+     * Les dossiers et les fichiers sont demandés en parallèle ; si seule la liste des fichiers
+     * échoue, l'erreur est journalisée et l'arborescence est construite sans eux.
+     * @throws IOException si la liste des dossiers n'a pas pu être récupérée (après nouveaux essais)
+     */
+    public List<NodeItem> listRoot() throws IOException {
+        VaultTree tree = new VaultTree();
+        try {
+            // Les fichiers reçus avant leur dossier sont mis en attente par VaultTree
+            listRootAsync(new ListingListener() {
+                @Override
+                public void onFolders(List<FolderDto> folders) {
+                    for (FolderDto folder : folders) {
+                        tree.addFolder(folder.id, folder.name, folder.parentId);
+                    }
                 }
-            } else if (jsonResponse.has("files") || jsonResponse.has("data")) {
-                JsonNode filesArray = jsonResponse.has("files") ? 
-                    jsonResponse.get("files") : jsonResponse.get("data");
-                for (JsonNode fileNode : filesArray) {
-                    files.add(parseFileDto(fileNode));
+
+                @Override
+                public void onFiles(List<FileDto> files) {
+                    // Les fichiers sans dossier sont ignorés
+                    for (FileDto file : files) {
+                        tree.addFile(file.folderId, file.toFileEntry());
+                    }
                 }
+            }).join();
+        } catch (CompletionException e) {
+            ListingException error = (ListingException) causeOf(e);
+            if (error.getFolderError() != null) {
+                // Pas de dossier "Mes documents" de repli : un coffre vide ferait croire à une perte de données
+                throw error;
             }
-            
-            return files;
+            System.err.println("Arborescence incomplète: " + error.getMessage());
         }
+        
+        // Les dossiers dont le parent est introuvable sont traités comme racines
+        tree.complete();
+        // Coffre réellement vide : un dossier par défaut pour pouvoir y déposer des fichiers
+        return tree.getRoots().isEmpty() ? createEmptyRoot() : tree.getRoots();
     }
 
     /**
-     * Parse un nœud JSON en FileDto
+     * Récupère l'arborescence en flux : la liste des dossiers et celle des fichiers sont
+     * demandées en parallèle, et leurs éléments transmis au listener par lots, page après page,
+     * dès qu'ils sont décodés. Les fichiers peuvent donc arriver avant leur dossier.
+     *
+     * Le listener est appelé depuis les threads du dispatcher, jamais en parallèle.
+     * Si l'une des listes échoue, l'autre va quand même jusqu'au bout ; le future échoue
+     * ensuite avec une {@link ListingException} indiquant la ou les listes en erreur.
      */
-    private FileDto parseFileDto(JsonNode fileNode) {
-        FileDto file = new FileDto();
-        
-        file.id = fileNode.has("id") && !fileNode.get("id").isNull() ? 
-            fileNode.get("id").asInt() : null;
-        
-        file.filename = fileNode.has("filename") ? fileNode.get("filename").asText() : 
-                       fileNode.has("original_name") ? fileNode.get("original_name").asText() : "Sans nom";
-        
-        file.size = fileNode.has("size") ? fileNode.get("size").asLong() : 0L;
-        
-        file.folderId = fileNode.has("folder_id") && !fileNode.get("folder_id").isNull() ? 
-            fileNode.get("folder_id").asInt() : null;
-        
-        // Parser la date
-        file.uploadedAt = Instant.now();
-        if (fileNode.has("uploaded_at")) {
-            try {
-                file.uploadedAt = Instant.parse(fileNode.get("uploaded_at").asText());
-            } catch (Exception e) {
-                // Garder la date actuelle en cas d'erreur
+    public CompletableFuture<Void> listRootAsync(ListingListener listener) {
+        Object lock = new Object();
+        ListingBatcher<FolderDto> folderBatcher = new ListingBatcher<>(batch -> {
+            synchronized (lock) {
+                listener.onFolders(batch);
             }
-        } else if (fileNode.has("created_at")) {
-            try {
-                file.uploadedAt = Instant.parse(fileNode.get("created_at").asText());
-            } catch (Exception e) {
-                // Garder la date actuelle en cas d'erreur
+        });
+        ListingBatcher<FileDto> fileBatcher = new ListingBatcher<>(batch -> {
+            synchronized (lock) {
+                listener.onFiles(batch);
             }
-        }
+        });
         
-        // Version (à adapter selon votre API)
-        file.currentVersion = fileNode.has("current_version") ? fileNode.get("current_version").asInt() : 
-                             fileNode.has("version") ? fileNode.get("version").asInt() : 1;
+        CompletableFuture<Throwable> folders = fetchFolderPages(null, folderBatcher, folderBatcher::flush)
+            .handle((done, error) -> error);
+        CompletableFuture<Throwable> files = fetchFilePages(null, fileBatcher, fileBatcher::flush)
+            .handle((done, error) -> error);
         
-        return file;
+        return folders.thenCombine(files, (folderError, fileError) -> {
+            if (folderError != null || fileError != null) {
+                throw new CompletionException(new ListingException(causeOf(folderError), causeOf(fileError)));
+            }
+            return null;
+        });
     }
 
     /**
-     * Construit l'arborescence complète des dossiers avec leurs fichiers
+     * Retire l'enveloppe {@link CompletionException} ajoutée par la composition de futures.
      */
-    public List<NodeItem> listRoot() {
-        List<NodeItem> root = new ArrayList<>();
-        
+    private static Throwable causeOf(Throwable error) {
+        Throwable current = error;
+        while (current instanceof CompletionException && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+    
+    /**
+     * Récupère le jeton représentant l'état actuel du coffre.
+     * À demander juste avant un chargement complet : les changements ultérieurs
+     * pourront ensuite être appliqués avec {@link #fetchChangesAsync(String)}.
+     * GET /changes/token
+     */
+    public CompletableFuture<String> fetchChangeTokenAsync() {
         try {
-            // 1. Récupérer tous les dossiers
-            List<FolderDto> allFolders = listFolders();
-            
-            // 2. Récupérer tous les fichiers
-            List<FileDto> allFiles = listFiles();
-            
-            // 3. Créer une map pour accès rapide aux dossiers par ID
-            Map<Integer, NodeItem> folderMap = new HashMap<>();
-            
-            // 4. Créer les NodeItem pour chaque dossier
-            for (FolderDto folder : allFolders) {
-                NodeItem node = NodeItem.folder(folder.name);
-                node.setId(folder.id);
-                node.setParentId(folder.parentId);
-                folderMap.put(folder.id, node);
-            }
-            
-            // 5. Construire la hiérarchie des dossiers
-            List<NodeItem> rootFolders = new ArrayList<>();
-            for (FolderDto folder : allFolders) {
-                NodeItem node = folderMap.get(folder.id);
-                
-                if (folder.parentId == null) {
-                    // Dossier racine
-                    rootFolders.add(node);
-                } else {
-                    // Sous-dossier : ajouter au parent
-                    NodeItem parent = folderMap.get(folder.parentId);
-                    if (parent != null) {
-                        parent.addChild(node);
-                    } else {
-                        // Parent introuvable, traiter comme racine
-                        rootFolders.add(node);
-                    }
+            return enqueue(buildAuthenticatedGet(baseUrl + "changes/token"), response -> {
+                String responseBody = response.body() != null ? response.body().string() : "";
+                if (!response.isSuccessful()) {
+                    throw new IOException("Échec de récupération du jeton de synchronisation: " + response.code() + " - " + responseBody);
                 }
-            }
-            
-            // 6. Ajouter les fichiers dans leurs dossiers respectifs
-            for (FileDto file : allFiles) {
-                FileEntry fileEntry = FileEntry.of(
-                    file.id,
-                    file.filename, 
-                    file.size, 
-                    file.uploadedAt, 
-                    file.currentVersion
-                );
-                
-                if (file.folderId != null) {
-                    NodeItem folder = folderMap.get(file.folderId);
-                    if (folder != null) {
-                        folder.getFiles().add(fileEntry);
-                    }
-                } else {
-                    // Fichier sans dossier : créer un dossier "Non classé"
-                    // ou l'ignorer selon votre logique métier
+                JsonNode jsonResponse = jsonMapper.readTree(responseBody);
+                if (!jsonResponse.hasNonNull("token")) {
+                    throw new IOException("Réponse invalide: jeton de synchronisation manquant");
                 }
-            }
-            
-            // 7. Retourner les dossiers racine
-            return rootFolders.isEmpty() ? createEmptyRoot() : rootFolders;
-            
+                return jsonResponse.get("token").asText();
+            });
         } catch (IOException e) {
-            System.err.println("Erreur lors de la récupération de l'arborescence: " + e.getMessage());
-            e.printStackTrace();
-            return createEmptyRoot();
+            return CompletableFuture.failedFuture(e);
         }
     }
-    
+
     /**
-     * Crée un dossier racine vide en cas d'erreur
+     * Récupère tous les changements survenus depuis le jeton donné (toutes les pages).
+     * Un jeton trop ancien est refusé par le serveur (410) : il faut alors tout recharger.
+     * GET /changes?since={token}
      */
-    private List<NodeItem> createEmptyRoot() {
-        List<NodeItem> root = new ArrayList<>();
-        NodeItem emptyFolder = NodeItem.folder("Mes documents");
-        root.add(emptyFolder);
-        return root;
+    public CompletableFuture<ChangeSet> fetchChangesAsync(String token) {
+        ChangeSet accumulated = new ChangeSet();
+        return fetchChangePages(token, accumulated).thenApply(done -> accumulated);
     }
 
-    /**
-     * Crée un nouveau dossier
-     * POST /folders
+    private CompletableFuture<Void> fetchChangePages(String token, ChangeSet accumulated) {
+        CompletableFuture<ChangeSet> page;
+        try {
+            HttpUrl url = HttpUrl.parse(baseUrl + "changes");
+            if (url == null) {
+                throw new IOException("URL invalide: " + baseUrl + "changes");
+            }
+            page = enqueue(buildAuthenticatedGet(url.newBuilder().addQueryParameter("since", token).build().toString()),
+                this::handleChangesResponse);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return page.thenCompose(changeSet -> {
+            accumulated.changes.addAll(changeSet.changes);
+            accumulated.nextToken = changeSet.nextToken != null ? changeSet.nextToken : token;
+            return changeSet.hasMore && changeSet.nextToken != null
+                ? fetchChangePages(changeSet.nextToken, accumulated)
+                : CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private ChangeSet handleChangesResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "";
+            if (response.code() == 410) {
+                throw new IOException("Jeton de synchronisation expiré: 410 - " + errorBody);
+            }
+            throw new IOException("Échec de récupération des changements: " + response.code() + " - " + errorBody);
+        }
+        
+        try (InputStream in = response.body().byteStream()) {
+            return listingReader.readChanges(in);
+        }
+    }
+
+    private Request buildAuthenticatedGet(String url) throws IOException {
+        if (!isAuthenticated()) {
+            throw new IOException("Non authentifié. Veuillez vous connecter d'abord.");
+        }
+        
+        return new Request.Builder()
+            .url(url)
+            .get()
+            .addHeader("Authorization", "Bearer " + authToken)
+            .addHeader("Accept", "application/json")
+            .build();
+    }
+
+    /**
+     * Crée un dossier racine par défaut lorsque le coffre ne contient aucun dossier
+     */
+    private List<NodeItem> createEmptyRoot() {
+        List<NodeItem> root = new ArrayList<>();
+        NodeItem emptyFolder = NodeItem.folder("Mes documents");
+        root.add(emptyFolder);
+        return root;
+    }
+
+    /**
+     * Crée un nouveau dossier
+     * POST /folders
      * @param name Nom du dossier
      * @param parentId ID du dossier parent (null pour la racine)
      * @return ID du dossier créé
      * @throws IOException En cas d'erreur réseau
      */
     public Integer createFolder(String name, Integer parentId) throws IOException {
+        return execute(buildCreateFolderRequest(name, parentId), this::handleCreateFolderResponse);
+    }
+
+    /**
+     * Variante asynchrone de {@link #createFolder(String, Integer)}.
+     */
+    public CompletableFuture<Integer> createFolderAsync(String name, Integer parentId) {
+        try {
+            return enqueue(buildCreateFolderRequest(name, parentId), this::handleCreateFolderResponse);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Request buildCreateFolderRequest(String name, Integer parentId) throws IOException {
         if (!isAuthenticated()) {
             throw new IOException("Non authentifié. Veuillez vous connecter d'abord.");
         }
@@ -346,36 +879,38 @@ public class ApiClient {
             MediaType.parse("application/json")
         );
         
-        Request request = new Request.Builder()
+        // Clé unique par création : un nouvel essai après une réponse perdue ne crée pas de doublon
+        return new Request.Builder()
             .url(baseUrl + "folders")
             .post(body)
+            .addHeader(RetryPolicy.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
             .addHeader("Authorization", "Bearer " + authToken)
             .addHeader("Content-Type", "application/json")
             .build();
+    }
+
+    private Integer handleCreateFolderResponse(Response response) throws IOException {
+        String responseBody = response.body() != null ? response.body().string() : "";
         
-        try (Response response = httpClient.newCall(request).execute()) {
-            String responseBody = response.body() != null ? response.body().string() : "";
-            
-            if (!response.isSuccessful()) {
-                throw new IOException("Échec de la création du dossier: " + response.code() + " - " + responseBody);
-            }
-            
-            // Parser la réponse pour récupérer l'ID du dossier
-            if (!responseBody.isEmpty()) {
-                try {
-                    JsonNode jsonResponse = jsonMapper.readTree(responseBody);
-                    
-                    if (jsonResponse.has("id")) {
-                        return jsonResponse.get("id").asInt();
-                    }
-                } catch (Exception e) {
-                    System.err.println("Erreur lors du parsing de la réponse: " + e.getMessage());
+        if (!response.isSuccessful()) {
+            throw new IOException("Échec de la création du dossier: " + response.code() + " - " + responseBody);
+        }
+        
+        // Parser la réponse pour récupérer l'ID du dossier
+        if (!responseBody.isEmpty()) {
+            try {
+                JsonNode jsonResponse = jsonMapper.readTree(responseBody);
+                
+                if (jsonResponse.has("id")) {
+                    return jsonResponse.get("id").asInt();
                 }
+            } catch (Exception e) {
+                System.err.println("Erreur lors du parsing de la réponse: " + e.getMessage());
             }
-            
-            // Si pas d'ID retourné, considérer comme succès quand même
-            return null;
         }
+        
+        // Si pas d'ID retourné, considérer comme succès quand même
+        return null;
     }
 
     /**
@@ -387,6 +922,50 @@ public class ApiClient {
      * @throws IOException En cas d'erreur réseau
      */
     public Integer uploadFile(java.io.File file, Integer folderId) throws IOException {
+        return execute(buildUploadRequest(file, folderId), this::handleUploadResponse);
+    }
+
+    /**
+     * Variante asynchrone de {@link #uploadFile(java.io.File, Integer)}.
+     * Annuler le future annule l'appel HTTP sous-jacent.
+     */
+    public CompletableFuture<Integer> uploadFileAsync(java.io.File file, Integer folderId) {
+        return uploadFileAsync(file, folderId, null);
+    }
+
+    /**
+     * Variante de {@link #uploadFileAsync(java.io.File, Integer)} avec suivi de progression.
+     * @param onBytesSent reçoit le nombre d'octets du fichier déjà envoyés, depuis un thread
+     *                    du dispatcher et à chaque écriture : c'est à l'appelant de regrouper
+     *                    les mises à jour d'interface ; peut être null
+     */
+    public CompletableFuture<Integer> uploadFileAsync(java.io.File file, Integer folderId, LongConsumer onBytesSent) {
+        try {
+            ProgressCounter progress = onBytesSent != null ? new ProgressCounter(0, onBytesSent) : null;
+            UploadCompression.Stats compression = uploadCompression && file != null
+                ? UploadCompression.evaluate(file)
+                : null;
+            ContentDigest digest = new ContentDigest();
+            CompletableFuture<Integer> result = enqueue(buildUploadRequest(file, folderId, progress, compression, digest),
+                response -> handleUploadResponse(response, file.getName(), digest.hex()));
+            if (compression != null) {
+                result.thenRun(() -> System.out.println(compression.describe()));
+            }
+            return result;
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Request buildUploadRequest(java.io.File file, Integer folderId) throws IOException {
+        return buildUploadRequest(file, folderId, null, null, null);
+    }
+
+    /**
+     * @param digest reçoit l'empreinte des octets du fichier envoyés ; peut être null
+     */
+    private Request buildUploadRequest(java.io.File file, Integer folderId, ProgressCounter progress,
+                                       UploadCompression.Stats compression, ContentDigest digest) throws IOException {
         if (!isAuthenticated()) {
             throw new IOException("Non authentifié. Veuillez vous connecter d'abord.");
         }
@@ -395,11 +974,15 @@ public class ApiClient {
             throw new IOException("Fichier invalide ou inexistant");
         }
         
-        // Créer le corps multipart/form-data
+        // Créer le corps multipart/form-data ; seule la partie fichier est comptée dans la progression
+        RequestBody fileBody = RequestBody.create(file, MediaType.parse("application/octet-stream"));
+        if (digest != null) {
+            fileBody = digest.wrap(fileBody);
+        }
         okhttp3.MultipartBody.Builder builder = new okhttp3.MultipartBody.Builder()
             .setType(okhttp3.MultipartBody.FORM)
             .addFormDataPart("file", file.getName(),
-                RequestBody.create(file, MediaType.parse("application/octet-stream")));
+                progress != null ? new CountingRequestBody(fileBody, progress) : fileBody);
         
         // Ajouter le folder_id si spécifié
         if (folderId != null) {
@@ -408,116 +991,2227 @@ public class ApiClient {
         
         RequestBody requestBody = builder.build();
         
-        Request request = new Request.Builder()
+        // Même clé pour tous les essais de cet upload : le fichier n'est jamais enregistré deux fois
+        Request.Builder request = new Request.Builder()
             .url(baseUrl + "files")
-            .post(requestBody)
-            .addHeader("Authorization", "Bearer " + authToken)
-            .build();
+            .addHeader(RetryPolicy.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+            .addHeader("Authorization", "Bearer " + authToken);
+        if (compression != null) {
+            requestBody = new UploadCompression.GzipRequestBody(requestBody, compression);
+            request.addHeader("Content-Encoding", "gzip");
+        }
+        return request.post(uploadLimiter.limit(requestBody)).build();
+    }
+
+    private Integer handleUploadResponse(Response response) throws IOException {
+        return handleUploadResponse(response, null, null);
+    }
+
+    /**
+     * @param expectedSha256 empreinte du contenu envoyé, comparée à celle que le serveur a calculée
+     *                       (champ {@code sha256}) ; null pour ne pas vérifier
+     */
+    private Integer handleUploadResponse(Response response, String fileName, String expectedSha256) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "";
+            throw new IOException("Échec de l'upload: " + response.code() + " - " + errorBody);
+        }
         
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                throw new IOException("Échec de l'upload: " + response.code() + " - " + errorBody);
+        // Parser la réponse pour récupérer l'ID du fichier
+        String responseBody = response.body().string();
+        JsonNode jsonResponse = jsonMapper.readTree(responseBody);
+        
+        if (jsonResponse.has("id")) {
+            int fileId = jsonResponse.get("id").asInt();
+            String stored = jsonResponse.path("sha256").asText("");
+            if (expectedSha256 != null && !stored.isEmpty() && !stored.equalsIgnoreCase(expectedSha256)) {
+                // Copie altérée : retirée du serveur pour qu'elle ne soit jamais téléchargée
+                deleteFileAsync(fileId).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        System.err.println("Copie altérée de " + fileName + " (id " + fileId + ") non supprimée: "
+                            + causeOf(error).getMessage());
+                    }
+                });
+                throw new ContentDigest.MismatchException("Contenu altéré pendant l'envoi de " + fileName
+                    + " (empreinte envoyée " + expectedSha256 + ", reçue par le serveur " + stored
+                    + ") : la copie du serveur a été supprimée, renvoyez le fichier");
             }
-            
-            // Parser la réponse pour récupérer l'ID du fichier
-            String responseBody = response.body().string();
-            JsonNode jsonResponse = jsonMapper.readTree(responseBody);
-            
-            if (jsonResponse.has("id")) {
-                return jsonResponse.get("id").asInt();
-            } else {
-                // Si pas d'ID retourné, considérer comme succès quand même
+            return fileId;
+        } else {
+            // Si pas d'ID retourné, considérer comme succès quand même
+            return null;
+        }
+    }
+
+    /**
+     * Upload avec déduplication par contenu : l'empreinte SHA-256 du fichier est calculée, puis
+     * le serveur est interrogé (POST /files/link) ; s'il possède déjà ce contenu pour le compte,
+     * le fichier est créé en le référençant, sans rien transférer.
+     *
+     * Deux fichiers identiques envoyés en même temps ne sont transférés qu'une fois : le second
+     * attend la fin du premier puis est lié à son contenu. Sinon l'upload est classique, découpé
+     * en blocs au-delà de {@link #getChunkSize()}. Annuler le future annule tous ses appels.
+     *
+     * @param onBytesSent voir {@link #uploadFileAsync(java.io.File, Integer, LongConsumer)} ;
+     *                    un fichier lié passe directement à sa taille complète
+     * @return ID du fichier créé
+     */
+    public CompletableFuture<Integer> uploadFileDedupAsync(File file, Integer folderId, LongConsumer onBytesSent) {
+        if (file == null || !file.exists()) {
+            return CompletableFuture.failedFuture(new IOException("Fichier invalide ou inexistant"));
+        }
+        if (!deduplication) {
+            return uploadContentAsync(file, folderId, onBytesSent, null);
+        }
+        CancellationScope scope = new CancellationScope();
+        CompletableFuture<Integer> result = scope.track(CompletableFuture.supplyAsync(() -> hash(file), hashExecutor))
+            .thenCompose(hash -> {
+                CompletableFuture<Integer> first = new CompletableFuture<>();
+                CompletableFuture<Integer> earlier = uploadsByHash.putIfAbsent(hash, first);
+                if (earlier != null) {
+                    System.out.println(file.getName() + " : contenu identique déjà en cours d'envoi, attente");
+                    // Que l'envoi en cours réussisse ou non, on repasse par le lien : il aboutit s'il a réussi
+                    return scope.track(earlier.handle((id, error) -> hash))
+                        .thenCompose(h -> linkOrUpload(file, folderId, hash, onBytesSent, scope));
+                }
+                CompletableFuture<Integer> upload = linkOrUpload(file, folderId, hash, onBytesSent, scope);
+                upload.whenComplete((id, error) -> {
+                    uploadsByHash.remove(hash, first);
+                    if (error != null) {
+                        first.completeExceptionally(error);
+                    } else {
+                        first.complete(id);
+                    }
+                });
+                return upload;
+            });
+        result.whenComplete((fileId, error) -> {
+            if (result.isCancelled()) {
+                scope.cancel();
+            }
+        });
+        return result;
+    }
+
+    private String hash(File file) {
+        try {
+            return FileHasher.sha256(file);
+        } catch (IOException e) {
+            throw new CompletionException(new IOException("Lecture impossible de " + file.getName() + ": " + e.getMessage(), e));
+        }
+    }
+
+    private CompletableFuture<Integer> linkOrUpload(File file, Integer folderId, String hash,
+                                                    LongConsumer onBytesSent, CancellationScope scope) {
+        return scope.track(linkContentAsync(file, folderId, hash))
+            .exceptionally(error -> {
+                System.err.println("Déduplication impossible pour " + file.getName() + ": " + causeOf(error).getMessage());
                 return null;
+            })
+            .thenCompose(fileId -> {
+                if (fileId == null) {
+                    return scope.track(uploadContentAsync(file, folderId, onBytesSent, hash));
+                }
+                System.out.println(file.getName() + " : contenu déjà présent sur le serveur, lié sans transfert");
+                if (onBytesSent != null) {
+                    onBytesSent.accept(file.length());
+                }
+                return CompletableFuture.completedFuture(fileId);
+            });
+    }
+
+    /**
+     * Crée le fichier à partir d'un contenu déjà stocké.
+     * POST /files/link {sha256, size, filename, folder_id} → {id} ; 404 si le contenu est inconnu
+     * @return l'ID du fichier créé, ou null si le contenu doit être envoyé
+     */
+    private CompletableFuture<Integer> linkContentAsync(File file, Integer folderId, String hash) {
+        try {
+            Map<String, Object> requestData = new HashMap<>();
+            requestData.put("sha256", hash);
+            requestData.put("size", file.length());
+            requestData.put("filename", file.getName());
+            if (folderId != null) {
+                requestData.put("folder_id", folderId);
             }
+            Request request = new Request.Builder()
+                .url(baseUrl + "files/link")
+                .post(RequestBody.create(jsonMapper.writeValueAsString(requestData), MediaType.parse("application/json")))
+                .addHeader(RetryPolicy.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+                .addHeader("Authorization", "Bearer " + requireToken())
+                .build();
+            return enqueue(request, response -> {
+                if (response.code() == 404) {
+                    return null;
+                }
+                if (!response.isSuccessful()) {
+                    String errorBody = response.body() != null ? response.body().string() : "";
+                    throw new IOException("Échec de la recherche du contenu: " + response.code() + " - " + errorBody);
+                }
+                JsonNode jsonResponse = jsonMapper.readTree(response.body().string());
+                if (!jsonResponse.hasNonNull("id")) {
+                    throw new IOException("Réponse invalide: id manquant");
+                }
+                return jsonResponse.get("id").asInt();
+            });
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 
     /**
-     * Supprime un fichier
-     * DELETE /files/{id}
-     * @param fileId ID du fichier à supprimer
-     * @throws IOException En cas d'erreur réseau
+     * Envoie le contenu : une seule requête, ou découpé en blocs au-delà de {@link #getChunkSize()}.
+     * @param sha256 empreinte déjà calculée du fichier, vérifiée à l'assemblage des blocs ; peut être null
      */
-    public void deleteFile(Integer fileId) throws IOException {
-        if (!isAuthenticated()) {
-            throw new IOException("Non authentifié. Veuillez vous connecter d'abord.");
+    private CompletableFuture<Integer> uploadContentAsync(File file, Integer folderId, LongConsumer onBytesSent,
+                                                          String sha256) {
+        return file.length() > chunkSize
+            ? uploadFileResumableAsync(file, folderId, onBytesSent, sha256)
+            : uploadFileAsync(file, folderId, onBytesSent);
+    }
+
+    /**
+     * Upload reprenable, découpé en blocs :
+     * POST /uploads (ouverture), PUT /uploads/{id}/chunks/{n} pour chaque bloc, POST /uploads/{id}/commit.
+     *
+     * Les blocs sont envoyés en parallèle ({@link #setUploadParallelism(int)}) puis assemblés
+     * dans l'ordre par le serveur au commit. La session est enregistrée sur disque après chaque
+     * bloc accepté : si un upload du même fichier (inchangé) vers le même dossier a été interrompu,
+     * seuls les blocs manquants sont renvoyés.
+     *
+     * Annuler le future retourné annule tous les appels en cours de l'upload ; la session
+     * reste enregistrée et l'upload pourra être repris plus tard.
+     *
+     * @param onBytesSent reçoit le nombre d'octets du fichier envoyés (blocs des essais précédents
+     *                    compris), depuis un thread du dispatcher ; peut être null
+     * @return ID du fichier créé
+     */
+    public CompletableFuture<Integer> uploadFileResumableAsync(File file, Integer folderId, LongConsumer onBytesSent) {
+        return uploadFileResumableAsync(file, folderId, onBytesSent, null);
+    }
+
+    private CompletableFuture<Integer> uploadFileResumableAsync(File file, Integer folderId, LongConsumer onBytesSent,
+                                                                String sha256) {
+        if (file == null || !file.exists()) {
+            return CompletableFuture.failedFuture(new IOException("Fichier invalide ou inexistant"));
         }
-        
-        if (fileId == null) {
-            throw new IOException("ID du fichier invalide");
+        CancellationScope scope = new CancellationScope();
+        UploadSession existing = uploadStore.find(file, folderId);
+        CompletableFuture<UploadSession> session = existing != null
+            ? resumeSession(existing, scope)
+            : openSession(file, folderId, scope);
+        UploadCompression.Stats compression = uploadCompression ? UploadCompression.evaluate(file) : null;
+        CompletableFuture<Integer> result = session
+            .thenCompose(s -> {
+                ProgressCounter progress = onBytesSent != null
+                    ? new ProgressCounter(s.getAcknowledgedBytes(), onBytesSent)
+                    : null;
+                return new ChunkUploader(s, progress, compression, scope).start();
+            })
+            .thenCompose(s -> commitUpload(s, sha256, scope));
+        if (compression != null) {
+            result.thenRun(() -> System.out.println(compression.describe()));
         }
-        
-        Request request = new Request.Builder()
-            .url(baseUrl + "files/" + fileId)
-            .delete()
-            .addHeader("Authorization", "Bearer " + authToken)
-            .build();
-        
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                throw new IOException("Échec de la suppression du fichier: " + response.code() + " - " + errorBody);
+        // Les étapes enchaînées ne propagent pas l'annulation : on la relaie aux appels en cours
+        result.whenComplete((fileId, error) -> {
+            if (result.isCancelled()) {
+                scope.cancel();
             }
+        });
+        return result;
+    }
+
+    /**
+     * Reprend un upload interrompu, par exemple au redémarrage de l'application.
+     * @see #getPendingUploads()
+     */
+    public CompletableFuture<Integer> resumeUploadAsync(UploadSession session, LongConsumer onBytesSent) {
+        if (!session.matches(session.getFile())) {
+            uploadStore.delete(session);
+            return CompletableFuture.failedFuture(new IOException(
+                "Le fichier a été modifié ou supprimé depuis le début de l'upload: " + session.getFilePath()));
         }
+        return uploadFileResumableAsync(session.getFile(), session.getFolderId(), onBytesSent);
     }
 
     /**
-     * Supprime un dossier (et tous les fichiers qu'il contient)
-     * DELETE /folders/{id}
-     * @param folderId ID du dossier à supprimer
-     * @throws IOException En cas d'erreur réseau
+     * Envoie {@code file} comme nouvelle version d'un fichier existant, en ne transférant que
+     * ce qui a changé (à la rsync) :
+     * GET /files/{id}/signatures (sommes des blocs de la version actuelle), calcul local du delta
+     * en un seul passage sur le fichier, puis POST /files/{id}/delta.
+     *
+     * Le delta est calculé par rapport à la version dont on a reçu les signatures ; si une autre
+     * version est déposée entre-temps, le serveur refuse le delta (409).
+     *
+     * @param onBytesRead reçoit le nombre d'octets du fichier local déjà comparés ; peut être null
+     * @return numéro de la nouvelle version
      */
-    public void deleteFolder(Integer folderId) throws IOException {
-        if (!isAuthenticated()) {
-            throw new IOException("Non authentifié. Veuillez vous connecter d'abord.");
+    public CompletableFuture<Integer> uploadVersionDeltaAsync(File file, int fileId, LongConsumer onBytesRead) {
+        if (file == null || !file.exists()) {
+            return CompletableFuture.failedFuture(new IOException("Fichier invalide ou inexistant"));
         }
-        
-        if (folderId == null) {
-            throw new IOException("ID du dossier invalide");
+        CancellationScope scope = new CancellationScope();
+        CompletableFuture<Integer> result = scope.track(fetchSignaturesAsync(fileId))
+            .thenCompose(signatures -> scope.track(CompletableFuture.supplyAsync(
+                    () -> encodeDelta(file, signatures, onBytesRead, scope), hashExecutor))
+                .thenCompose(delta -> {
+                    CompletableFuture<Integer> sent = scope.track(sendDeltaAsync(fileId, signatures.getVersion(), delta.file));
+                    sent.whenComplete((version, error) -> delta.file.delete());
+                    return sent.thenApply(version -> {
+                        System.out.println("Delta de " + file.getName() + " : " + delta.file.length() / 1024
+                            + " Ko envoyés pour " + file.length() / 1024 + " Ko (" + delta.reusedBytes / 1024
+                            + " Ko repris de la version " + signatures.getVersion() + ")");
+                        return version;
+                    });
+                }));
+        result.whenComplete((version, error) -> {
+            if (result.isCancelled()) {
+                scope.cancel();
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<DeltaEncoder.Signatures> fetchSignaturesAsync(int fileId) {
+        try {
+            Request request = new Request.Builder()
+                .url(baseUrl + "files/" + fileId + "/signatures")
+                .get()
+                .addHeader("Authorization", "Bearer " + requireToken())
+                .build();
+            return enqueue(request, response -> {
+                if (!response.isSuccessful()) {
+                    String errorBody = response.body() != null ? response.body().string() : "";
+                    throw new IOException("Signatures de la version actuelle indisponibles: " + response.code() + " - " + errorBody);
+                }
+                return DeltaEncoder.Signatures.read(response.body().source());
+            });
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        
-        Request request = new Request.Builder()
-            .url(baseUrl + "folders/" + folderId)
-            .delete()
-            .addHeader("Authorization", "Bearer " + authToken)
-            .build();
-        
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "";
-                throw new IOException("Échec de la suppression du dossier: " + response.code() + " - " + errorBody);
+    }
+
+    /**
+     * Delta écrit dans un fichier temporaire : il peut être renvoyé tel quel en cas de nouvel essai.
+     */
+    private static final class Delta {
+        private final File file;
+        private final long reusedBytes;
+
+        Delta(File file, long reusedBytes) {
+            this.file = file;
+            this.reusedBytes = reusedBytes;
+        }
+    }
+
+    private Delta encodeDelta(File file, DeltaEncoder.Signatures signatures, LongConsumer onBytesRead,
+                                  CancellationScope scope) {
+        File delta = null;
+        try {
+            delta = Files.createTempFile("delta-", ".bin").toFile();
+            DeltaEncoder.Result encoded;
+            try (BufferedSink sink = Okio.buffer(Okio.sink(delta))) {
+                encoded = new DeltaEncoder(signatures).encode(file, sink, onBytesRead, () -> scope.cancelled);
+            }
+            return new Delta(delta, encoded.getCopiedBytes());
+        } catch (IOException e) {
+            if (delta != null) {
+                delta.delete();
+            }
+            throw new CompletionException(new IOException("Calcul du delta impossible pour " + file.getName() + ": " + e.getMessage(), e));
+        } catch (RuntimeException e) {
+            if (delta != null) {
+                delta.delete();
             }
+            throw e;
         }
     }
 
     /**
-     * Quota simulé: 2 Go max, 350 Mo utilisés.
-     * TODO: Remplacer par un vrai appel API
+     * POST /files/{id}/delta, rejouable grâce à la clé d'idempotence.
      */
-    public Quota getQuota() {
-        return new Quota(350L * 1024 * 1024, 2L * 1024 * 1024 * 1024);
+    private CompletableFuture<Integer> sendDeltaAsync(int fileId, int baseVersion, File delta) {
+        try {
+            Request request = new Request.Builder()
+                .url(baseUrl + "files/" + fileId + "/delta")
+                .post(uploadLimiter.limit(RequestBody.create(delta, MediaType.parse("application/octet-stream"))))
+                .addHeader("X-Base-Version", String.valueOf(baseVersion))
+                .addHeader(RetryPolicy.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+                .addHeader("Authorization", "Bearer " + requireToken())
+                .build();
+            return enqueue(request, response -> {
+                if (response.code() == 409) {
+                    throw new IOException("Une autre version a été déposée pendant l'envoi, recommencez");
+                }
+                if (!response.isSuccessful()) {
+                    String errorBody = response.body() != null ? response.body().string() : "";
+                    throw new IOException("Échec de l'envoi de la nouvelle version: " + response.code() + " - " + errorBody);
+                }
+                JsonNode jsonResponse = jsonMapper.readTree(response.body().string());
+                if (!jsonResponse.hasNonNull("version")) {
+                    throw new IOException("Réponse invalide: version manquante");
+                }
+                return jsonResponse.get("version").asInt();
+            });
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
     /**
-     * DTO pour les dossiers
+     * Télécharge la version actuelle d'un fichier.
+     * @see #downloadFileAsync(FileEntry, Integer, File, LongConsumer)
      */
-    private static class FolderDto {
-        Integer id;
-        String name;
-        Integer parentId;
+    public CompletableFuture<File> downloadFileAsync(FileEntry file, File destination, LongConsumer onBytesReceived) {
+        return downloadFileAsync(file, null, destination, onBytesReceived);
     }
-    
+
     /**
-     * DTO pour les fichiers
+     * GET /files/{id}/download, écrit au fil de la réception dans {@code destination}.
+     *
+     * Le contenu passe directement du flux réseau à un {@link FileChannel} par un tampon direct,
+     * sans jamais être entièrement en mémoire. Il est écrit dans {@code <destination>.part},
+     * renommé à la fin : la destination n'existe jamais à moitié écrite. La réponse ne passe pas
+     * par le cache HTTP.
+     *
+     * Si le téléchargement échoue ou est annulé, le fichier .part et sa description
+     * ({@code .part.json} : version, taille, ETag) sont conservés. Un nouvel essai vers la même
+     * destination reprend au dernier octet écrit ({@code Range} + {@code If-Range}), à condition
+     * que la version attendue soit toujours celle du téléchargement interrompu ; sinon le contenu
+     * partiel est abandonné.
+     *
+     * @param version version à télécharger, null pour la version actuelle ({@link FileEntry#getCurrentVersion()})
+     * @param onBytesReceived reçoit le nombre d'octets présents dans le fichier .part, depuis un thread
+     *                        du dispatcher ; peut être null
+     * @return le fichier de destination
      */
-    private static class FileDto {
-        Integer id;
-        String filename;
-        long size;
-        Integer folderId;
-        Instant uploadedAt;
-        int currentVersion;
+    public CompletableFuture<File> downloadFileAsync(FileEntry file, Integer version, File destination,
+                                                     LongConsumer onBytesReceived) {
+        if (file.getId() == null) {
+            return CompletableFuture.failedFuture(new IOException("Fichier sans ID: " + file.getName()));
+        }
+        int expectedVersion = version != null ? version : file.getCurrentVersion();
+        File target = destination.getAbsoluteFile();
+
+        PartialDownload partial = downloadStore.find(target);
+        if (partial != null && (partial.getFileId() != file.getId() || partial.getVersion() != expectedVersion)) {
+            System.out.println("Téléchargement interrompu de " + partial.getFileName() + " (v" + partial.getVersion()
+                + ") abandonné : la version attendue est maintenant v" + expectedVersion);
+            downloadStore.discard(partial);
+            partial = null;
+        }
+        if (partial == null) {
+            // Un .part sans description ne peut pas être repris sans risque
+            try {
+                Files.deleteIfExists(new File(target.getPath() + ".part").toPath());
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            partial = new PartialDownload();
+            partial.setFileId(file.getId());
+            partial.setFileName(file.getName());
+            partial.setRequestedVersion(version);
+            partial.setVersion(expectedVersion);
+            partial.setSize(file.getSize());
+            partial.setDestinationPath(target.getPath());
+        }
+        return download(partial, onBytesReceived);
+    }
+
+    /**
+     * Reprend un téléchargement interrompu (par exemple retrouvé au redémarrage).
+     * Si le fichier distant a changé entre-temps, le serveur renvoie tout le contenu.
+     * @see #getPendingDownloads()
+     */
+    public CompletableFuture<File> resumeDownloadAsync(PartialDownload partial, LongConsumer onBytesReceived) {
+        return download(partial, onBytesReceived);
+    }
+
+    /**
+     * Télécharge un dossier et ses sous-dossiers dans une archive ZIP, écrite au fil de l'eau.
+     *
+     * Les fichiers sont téléchargés en parallèle (au plus {@link FolderArchive#MAX_PARALLEL_FETCHES})
+     * et ajoutés à l'archive dans un ordre fixe ; ceux qui arrivent avant leur tour attendent dans une
+     * fenêtre en mémoire bornée. Le dossier n'est jamais copié sur le disque en dehors de l'archive.
+     * L'archive est écrite dans {@code <destination>.part}, renommé à la fin ; annuler le future
+     * retourné interrompt les téléchargements et supprime l'archive partielle.
+     *
+     * @param folder dossier de l'arborescence chargée, avec ses fichiers et sous-dossiers
+     * @param onBytesReceived reçoit le nombre d'octets de fichiers reçus ; peut être null
+     * @return l'archive
+     */
+    public CompletableFuture<File> downloadFolderAsync(NodeItem folder, File destination, LongConsumer onBytesReceived) {
+        CancellationScope scope = new CancellationScope();
+        ProgressCounter progress = onBytesReceived != null ? new ProgressCounter(0, onBytesReceived) : null;
+        FolderArchive archive = new FolderArchive(folder,
+            (file, out) -> scope.track(fetchContent(file, out, progress)), () -> scope.cancelled);
+        CompletableFuture<File> result = new CompletableFuture<>();
+        // Thread dédié : l'écriture de l'archive attend les téléchargements, elle ne doit pas occuper le dispatcher
+        Thread writer = new Thread(() -> {
+            try {
+                archive.write(destination.toPath());
+                System.out.println("Archive " + destination.getName() + " : " + archive.getFileCount() + " fichier(s)");
+                result.complete(destination);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }, "folder-zip");
+        writer.setDaemon(true);
+        writer.start();
+        result.whenComplete((file, error) -> {
+            if (result.isCancelled()) {
+                scope.cancel();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Copie le contenu actuel d'un fichier dans {@code out} (non fermé), depuis un thread du dispatcher.
+     * Un contenu différent de l'empreinte annoncée par le serveur fait échouer la copie, donc l'archive.
+     */
+    private CompletableFuture<Void> fetchContent(FileEntry file, OutputStream out, ProgressCounter progress) {
+        if (file.getId() == null) {
+            return CompletableFuture.failedFuture(new IOException("Fichier sans ID: " + file.getName()));
+        }
+        try {
+            return enqueue(downloadRequest(file.getId(), null).build(), response -> {
+                if (response.code() == 404) {
+                    throw new IOException("Fichier introuvable sur le serveur: " + file.getName());
+                }
+                if (!response.isSuccessful()) {
+                    String errorBody = response.body() != null ? response.body().string() : "";
+                    throw new IOException("Échec du téléchargement de " + file.getName() + ": "
+                        + response.code() + " - " + errorBody);
+                }
+                String checksum = ContentDigest.parse(response.header(ContentDigest.REPR_DIGEST_HEADER));
+                ContentDigest digest = checksum != null ? new ContentDigest() : null;
+                byte[] buffer = new byte[64 * 1024];
+                try (InputStream in = downloadLimiter.limit(response.body()).byteStream()) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        if (digest != null) {
+                            digest.update(buffer, 0, read);
+                        }
+                        out.write(buffer, 0, read);
+                        if (progress != null) {
+                            progress.add(read);
+                        }
+                    }
+                }
+                if (digest != null && !checksum.equalsIgnoreCase(digest.hex())) {
+                    throw new ContentDigest.MismatchException("Le contenu reçu pour " + file.getName()
+                        + " ne correspond pas à l'empreinte annoncée par le serveur");
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @return les téléchargements interrompus dont le fichier .part existe encore
+     */
+    public List<PartialDownload> getPendingDownloads() {
+        return downloadStore.loadAll();
+    }
+
+    /**
+     * Abandonne un téléchargement interrompu : le fichier .part et sa description sont supprimés.
+     */
+    public void discardDownload(PartialDownload partial) {
+        downloadStore.discard(partial);
+    }
+
+    private CompletableFuture<File> download(PartialDownload partial, LongConsumer onBytesReceived) {
+        if (!partial.getSegments().isEmpty()) {
+            if (partial.getEtag() != null) {
+                return startSegmented(partial, onBytesReceived, new CancellationScope());
+            }
+            // Sans ETag, rien ne garantit que les plages déjà reçues sont de la même version
+            downloadStore.discard(partial);
+            partial.setSegments(new ArrayList<>());
+        }
+        try {
+            long offset = partial.getReceivedBytes();
+            if (partial.getEtag() == null || partial.getSize() < 0) {
+                offset = 0;
+            } else if (offset > partial.getSize()) {
+                offset = 0;
+            } else if (offset == partial.getSize() && offset > 0) {
+                // Tout est déjà là : redemander le dernier octet confirme que la version n'a pas changé
+                offset--;
+            }
+            long resumeFrom = offset;
+            // Gros fichier : un premier octet demandé seul donne taille, ETag et support des plages
+            boolean probe = resumeFrom == 0 && maxDownloadSegments > 1 && partial.getSize() >= segmentedThreshold;
+
+            Request.Builder request = downloadRequest(partial);
+            if (resumeFrom > 0) {
+                request.header("Range", "bytes=" + resumeFrom + "-");
+                request.header("If-Range", partial.getEtag());
+                // Empreinte de la seule plage reçue : le début déjà sur le disque n'est pas relu
+                request.header(ContentDigest.WANT_CONTENT_DIGEST_HEADER, "sha-256");
+            } else if (probe) {
+                request.header("Range", "bytes=0-0");
+            }
+            CancellationScope scope = new CancellationScope();
+            CompletableFuture<File> sequential = scope.track(enqueue(request.build(), response -> {
+                if (response.code() == 404) {
+                    downloadStore.discard(partial);
+                    throw new IOException(partial.getRequestedVersion() != null
+                        ? "Version " + partial.getRequestedVersion() + " introuvable sur le serveur"
+                        : "Fichier introuvable sur le serveur");
+                }
+                if (response.code() == 416) {
+                    downloadStore.discard(partial);
+                    throw new IOException("Reprise impossible, le fichier distant a changé : relancez le téléchargement");
+                }
+                if (!response.isSuccessful()) {
+                    String errorBody = response.body() != null ? response.body().string() : "";
+                    throw new IOException("Échec du téléchargement: " + response.code() + " - " + errorBody);
+                }
+
+                long start = 0;
+                if (response.code() == 206) {
+                    long[] range = parseContentRange(response.header("Content-Range"));
+                    if (range[0] != resumeFrom) {
+                        downloadStore.discard(partial);
+                        throw new IOException("Plage inattendue: " + response.header("Content-Range"));
+                    }
+                    start = range[0];
+                    if (range[1] >= 0) {
+                        partial.setSize(range[1]);
+                    }
+                    partial.setEtag(response.header("ETag"));
+                    String checksum = ContentDigest.parse(response.header(ContentDigest.REPR_DIGEST_HEADER));
+                    if (checksum != null) {
+                        partial.setChecksum(checksum);
+                    }
+                    if (probe) {
+                        // null : la suite est confiée au téléchargement segmenté
+                        return null;
+                    }
+                    System.out.println("Reprise du téléchargement de " + partial.getFileName() + " à "
+                        + (start / 1024) + " Ko");
+                } else {
+                    if (resumeFrom > 0) {
+                        System.out.println("Le serveur renvoie tout le contenu de " + partial.getFileName()
+                            + " (modifié depuis l'interruption) : reprise depuis le début");
+                    }
+                    partial.setSize(response.body().contentLength());
+                    partial.setEtag(response.header("ETag"));
+                    partial.setChecksum(ContentDigest.parse(response.header(ContentDigest.REPR_DIGEST_HEADER)));
+                }
+                downloadStore.save(partial);
+                // Contenu complet : empreinte du fichier ; reprise : empreinte de la plage envoyée
+                String expected = start > 0
+                    ? ContentDigest.parse(response.header(ContentDigest.CONTENT_DIGEST_HEADER))
+                    : partial.getChecksum();
+                return writePart(downloadLimiter.limit(response.body()), partial, start, expected, onBytesReceived);
+            }));
+            if (!probe) {
+                return sequential;
+            }
+            CompletableFuture<File> result = sequential.thenCompose(file -> file != null
+                ? CompletableFuture.completedFuture(file)
+                : startSegmented(partial, onBytesReceived, scope));
+            // Les étapes enchaînées ne propagent pas l'annulation : on la relaie aux appels en cours
+            result.whenComplete((file, error) -> {
+                if (result.isCancelled()) {
+                    scope.cancel();
+                }
+            });
+            return result;
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Request.Builder downloadRequest(PartialDownload partial) throws IOException {
+        return downloadRequest(partial.getFileId(), partial.getRequestedVersion());
+    }
+
+    /**
+     * GET /files/{id}/download[?version=N], hors cache HTTP.
+     */
+    private Request.Builder downloadRequest(int fileId, Integer version) throws IOException {
+        HttpUrl.Builder url = HttpUrl.get(baseUrl + "files/" + fileId + "/download").newBuilder();
+        if (version != null) {
+            url.addQueryParameter("version", String.valueOf(version));
+        }
+        return new Request.Builder()
+            .url(url.build())
+            .get()
+            .cacheControl(new CacheControl.Builder().noStore().build())
+            .addHeader("Authorization", "Bearer " + requireToken());
+    }
+
+    private CompletableFuture<File> startSegmented(PartialDownload partial, LongConsumer onBytesReceived,
+                                                   CancellationScope scope) {
+        CompletableFuture<File> result = new SegmentedDownload(partial, onBytesReceived, scope).start();
+        // Le future retourné n'est pas celui d'un appel : l'annulation est relayée aux plages en cours
+        result.whenComplete((file, error) -> {
+            if (result.isCancelled()) {
+                scope.cancel();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * {@code bytes debut-fin/total}
+     * @return premier octet et taille totale (-1 si inconnue)
+     */
+    private static long[] parseContentRange(String header) throws IOException {
+        try {
+            String spec = header.substring(header.indexOf(' ') + 1);
+            int dash = spec.indexOf('-');
+            int slash = spec.indexOf('/');
+            long start = Long.parseLong(spec.substring(0, dash));
+            String total = spec.substring(slash + 1);
+            return new long[] {start, "*".equals(total) ? -1 : Long.parseLong(total)};
+        } catch (RuntimeException e) {
+            throw new IOException("Content-Range invalide: " + header);
+        }
+    }
+
+    /**
+     * Écrit le corps dans le fichier .part à partir de {@code start} (ce qui suit est tronqué),
+     * puis renomme le fichier complet en destination.
+     *
+     * L'empreinte est calculée sur les octets reçus, avant leur écriture, et comparée à
+     * {@code expectedSha256} : rien n'est relu depuis le disque.
+     *
+     * @param expectedSha256 empreinte annoncée pour les octets de ce corps (fichier entier, ou plage
+     *                       d'une reprise) ; null si le serveur n'en a annoncé aucune
+     */
+    private File writePart(ResponseBody body, PartialDownload partial, long start, String expectedSha256,
+                           LongConsumer onBytesReceived) throws IOException {
+        Path part = partial.getPartFile().toPath();
+        ContentDigest digest = expectedSha256 != null ? new ContentDigest() : null;
+        try (BufferedSource source = body.source();
+             FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(start);
+            channel.position(start);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(DOWNLOAD_BUFFER_SIZE);
+            long written = start;
+            if (onBytesReceived != null) {
+                onBytesReceived.accept(written);
+            }
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                if (digest != null) {
+                    digest.update(buffer.duplicate());
+                }
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer);
+                }
+                buffer.clear();
+                if (onBytesReceived != null) {
+                    onBytesReceived.accept(written);
+                }
+            }
+            long expected = body.contentLength();
+            if ((expected >= 0 && written - start != expected)
+                    || (partial.getSize() >= 0 && written != partial.getSize())) {
+                throw new IOException("Téléchargement incomplet: " + written + " octets reçus sur " + partial.getSize());
+            }
+            channel.force(false);
+        }
+        verifyDownload(partial, expectedSha256, digest);
+        return completeDownload(partial);
+    }
+
+    /**
+     * Compare l'empreinte calculée pendant la réception à celle annoncée par le serveur. Un contenu
+     * différent n'est jamais renommé en destination : le fichier .part est mis en quarantaine dans
+     * {@code ~/.coffrefort/quarantine} pour examen, et sa description oubliée.
+     *
+     * @param expectedSha256 empreinte annoncée par le serveur pour ce contenu, ou null
+     * @param digest empreinte du contenu reçu ; null si le serveur n'en a annoncé aucune
+     */
+    private void verifyDownload(PartialDownload partial, String expectedSha256, ContentDigest digest)
+            throws IOException {
+        if (digest == null || expectedSha256 == null || expectedSha256.equalsIgnoreCase(digest.hex())) {
+            return;
+        }
+        throw quarantine(partial, "attendue " + expectedSha256 + ", reçue " + digest.hex());
+    }
+
+    /**
+     * Déplace le fichier .part dans la quarantaine et oublie sa description.
+     * @return l'erreur à signaler
+     */
+    private ContentDigest.MismatchException quarantine(PartialDownload partial, String detail) throws IOException {
+        Files.createDirectories(quarantineDirectory.toPath());
+        String stamp = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").format(LocalDateTime.now());
+        Path quarantined = new File(quarantineDirectory, stamp + "-" + partial.getDestination().getName()).toPath();
+        Files.move(partial.getPartFile().toPath(), quarantined, StandardCopyOption.REPLACE_EXISTING);
+        downloadStore.forget(partial);
+        System.err.println("Empreinte de " + partial.getFileName() + " incorrecte (" + detail
+            + ") : fichier mis en quarantaine dans " + quarantined);
+        return new ContentDigest.MismatchException("Le contenu reçu pour " + partial.getFileName()
+            + " ne correspond pas à l'empreinte annoncée par le serveur : il a été mis en quarantaine ("
+            + quarantined + ") et n'a pas été enregistré");
+    }
+
+    /**
+     * Renomme le fichier .part complet en destination et oublie sa description.
+     */
+    private File completeDownload(PartialDownload partial) throws IOException {
+        Path part = partial.getPartFile().toPath();
+        Path target = partial.getDestination().toPath();
+        try {
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        downloadStore.forget(partial);
+        return partial.getDestination();
+    }
+
+    /**
+     * @return les uploads interrompus enregistrés sur ce poste
+     */
+    public List<UploadSession> getPendingUploads() {
+        return uploadStore.loadAll();
+    }
+
+    /**
+     * Abandonne un upload interrompu : la session locale est supprimée, celle du serveur aussi si possible.
+     */
+    public CompletableFuture<Void> discardUploadAsync(UploadSession session) {
+        uploadStore.delete(session);
+        try {
+            Request request = new Request.Builder()
+                .url(baseUrl + "uploads/" + session.getUploadId())
+                .delete()
+                .addHeader("Authorization", "Bearer " + requireToken())
+                .build();
+            return enqueue(request, response -> null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Ouvre une session d'upload côté serveur.
+     * POST /uploads {filename, size, folder_id, chunk_size} → {upload_id, chunk_size}
+     */
+    private CompletableFuture<UploadSession> openSession(File file, Integer folderId, CancellationScope scope) {
+        try {
+            Map<String, Object> requestData = new HashMap<>();
+            requestData.put("filename", file.getName());
+            requestData.put("size", file.length());
+            requestData.put("chunk_size", chunkSize);
+            if (folderId != null) {
+                requestData.put("folder_id", folderId);
+            }
+            Request request = new Request.Builder()
+                .url(baseUrl + "uploads")
+                .post(RequestBody.create(jsonMapper.writeValueAsString(requestData), MediaType.parse("application/json")))
+                .addHeader(RetryPolicy.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+                .addHeader("Authorization", "Bearer " + requireToken())
+                .build();
+            
+            return scope.track(enqueue(request, response -> {
+                String responseBody = response.body() != null ? response.body().string() : "";
+                if (!response.isSuccessful()) {
+                    throw new IOException("Échec de l'ouverture de l'upload: " + response.code() + " - " + responseBody);
+                }
+                JsonNode jsonResponse = jsonMapper.readTree(responseBody);
+                if (!jsonResponse.hasNonNull("upload_id")) {
+                    throw new IOException("Réponse invalide: upload_id manquant");
+                }
+                UploadSession session = new UploadSession(jsonResponse.get("upload_id").asText(), file, folderId,
+                    jsonResponse.path("chunk_size").asInt(chunkSize));
+                saveSession(session);
+                return session;
+            }));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Resynchronise une session enregistrée avec le serveur, qui fait foi sur les blocs reçus.
+     * Un bloc reçu dont l'empreinte n'a pas été confirmée à l'envoi (altéré, ou réponse perdue)
+     * est renvoyé : le nouvel envoi remplace la copie du serveur.
+     * Une session inconnue du serveur (expirée) est remplacée par une nouvelle.
+     * GET /uploads/{id} → {received_chunks: [...]}
+     */
+    private CompletableFuture<UploadSession> resumeSession(UploadSession session, CancellationScope scope) {
+        CompletableFuture<Boolean> known;
+        try {
+            known = scope.track(enqueue(buildAuthenticatedGet(baseUrl + "uploads/" + session.getUploadId()), response -> {
+                if (response.code() == 404) {
+                    return false;
+                }
+                String responseBody = response.body() != null ? response.body().string() : "";
+                if (!response.isSuccessful()) {
+                    throw new IOException("Échec de la reprise de l'upload: " + response.code() + " - " + responseBody);
+                }
+                List<Integer> received = new ArrayList<>();
+                for (JsonNode index : jsonMapper.readTree(responseBody).path("received_chunks")) {
+                    received.add(index.asInt());
+                }
+                received.retainAll(session.getAcknowledgedChunks());
+                session.setAcknowledgedChunks(received);
+                saveSession(session);
+                return true;
+            }));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        return known.thenCompose(isKnown -> {
+            if (isKnown) {
+                System.out.println("Reprise de l'upload de " + session.getFileName() + " : "
+                    + session.getAcknowledgedChunks().size() + " / " + session.getChunkCount() + " blocs déjà envoyés");
+                return CompletableFuture.completedFuture(session);
+            }
+            System.out.println("Session d'upload expirée, nouvel envoi de " + session.getFileName());
+            uploadStore.delete(session);
+            return openSession(session.getFile(), session.getFolderId(), scope);
+        });
+    }
+
+    /**
+     * Envoie les blocs manquants d'une session, au plus {@code uploadParallelism} à la fois.
+     * Tous les blocs sont lus depuis un seul {@link FileChannel} par lectures positionnelles,
+     * sans position partagée entre les envois. Au premier échec (après nouveaux essais),
+     * plus aucun bloc n'est lancé ; le future échoue une fois les envois en cours terminés.
+     */
+    private final class ChunkUploader {
+        private final UploadSession session;
+        private final ProgressCounter progress;
+        private final UploadCompression.Stats compression;
+        private final CancellationScope scope;
+        private final List<Integer> missing;
+        private final int parallelism = uploadParallelism;
+        private final CompletableFuture<UploadSession> done = new CompletableFuture<>();
+        private FileChannel channel;
+        private int next;
+        private int inFlight;
+        private Throwable failure;
+
+        ChunkUploader(UploadSession session, ProgressCounter progress, UploadCompression.Stats compression,
+                      CancellationScope scope) {
+            this.session = session;
+            this.progress = progress;
+            this.compression = compression;
+            this.scope = scope;
+            this.missing = session.getMissingChunks();
+        }
+
+        CompletableFuture<UploadSession> start() {
+            if (missing.isEmpty()) {
+                return CompletableFuture.completedFuture(session);
+            }
+            try {
+                channel = FileChannel.open(session.getFile().toPath(), StandardOpenOption.READ);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            pump();
+            return done;
+        }
+
+        private void pump() {
+            List<Integer> toStart = new ArrayList<>();
+            synchronized (this) {
+                while (failure == null && inFlight < parallelism && next < missing.size()) {
+                    toStart.add(missing.get(next++));
+                    inFlight++;
+                }
+            }
+            for (Integer index : toStart) {
+                scope.track(uploadChunk(session, channel, index, progress, compression, scope))
+                    .whenCompleteAsync((ignored, error) -> finished(index, error));
+            }
+        }
+
+        private void finished(int index, Throwable error) {
+            if (error == null) {
+                session.acknowledge(index);
+                saveSession(session);
+            }
+            
+            boolean allDone;
+            synchronized (this) {
+                inFlight--;
+                if (error != null && failure == null) {
+                    failure = causeOf(error);
+                }
+                allDone = inFlight == 0 && (failure != null || next >= missing.size());
+            }
+            if (!allDone) {
+                pump();
+                return;
+            }
+            
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Erreur à la fermeture de " + session.getFilePath() + ": " + e.getMessage());
+            }
+            if (failure != null) {
+                done.completeExceptionally(failure);
+            } else {
+                done.complete(session);
+            }
+        }
+    }
+
+    /**
+     * Téléchargement d'un gros fichier par plages parallèles, chacune sur sa propre connexion,
+     * écrites à leur position dans le fichier .part porté d'emblée à sa taille finale.
+     *
+     * Le nombre de connexions s'adapte au débit mesuré : on en ajoute une tant que la précédente
+     * a fait progresser le débit total d'au moins la moitié du débit moyen d'une connexion
+     * (lien non saturé) ; dès que le gain retombe, on s'arrête là. Une nouvelle connexion, comme
+     * celle dont la plage est terminée, reprend la seconde moitié de la plage la plus longue restante.
+     *
+     * La progression de chaque plage est enregistrée régulièrement dans la description du .part,
+     * après synchronisation du fichier : une interruption reprend plage par plage.
+     *
+     * Quand le serveur annonce une empreinte, chaque connexion demande des plages d'au plus
+     * {@link #VERIFIED_RANGE_SIZE} avec leur empreinte ({@code Content-Digest}), calculée sur les
+     * octets reçus au fil de l'écriture : rien n'est relu. Une plage n'est comptée comme écrite
+     * qu'une fois vérifiée ; une plage altérée est redemandée, puis le fichier mis en quarantaine.
+     */
+    private final class SegmentedDownload {
+        /** Intervalle des mesures de débit et des enregistrements de progression. */
+        private static final long TICK_MS = 500;
+        /** Durée de mesure après l'ajout d'une connexion avant d'en juger l'effet. */
+        private static final long EVALUATION_MS = 2000;
+        private static final long SAVE_INTERVAL_MS = 5000;
+        /** Gain minimal apporté par une connexion supplémentaire, en part du débit moyen par connexion. */
+        private static final double MIN_CONNECTION_GAIN = 0.5;
+        private static final int SEGMENT_ATTEMPTS = 3;
+        /** Plage demandée par requête quand chacune est vérifiée : ce qu'une altération fait retélécharger. */
+        private static final long VERIFIED_RANGE_SIZE = 8L * 1024 * 1024;
+
+        private final PartialDownload partial;
+        private final LongConsumer onBytesReceived;
+        private final CancellationScope scope;
+        private final int maxConnections = maxDownloadSegments;
+        private final CompletableFuture<File> done = new CompletableFuture<>();
+        private final List<PartialDownload.Segment> waiting = new ArrayList<>();
+        private FileChannel channel;
+        private ProgressCounter progress;
+        private int running;
+        private Throwable failure;
+        private boolean growing = true;
+        private long windowStart;
+        private long windowBytes;
+        private double rateBeforeGrowth = -1;
+        private double perConnectionBeforeGrowth;
+        private long lastSave;
+        /** Plages vérifiées une à une contre l'empreinte envoyée par le serveur */
+        private final boolean verified;
+
+        SegmentedDownload(PartialDownload partial, LongConsumer onBytesReceived, CancellationScope scope) {
+            this.partial = partial;
+            this.scope = scope;
+            this.onBytesReceived = onBytesReceived;
+            this.verified = partial.getChecksum() != null;
+        }
+
+        CompletableFuture<File> start() {
+            try {
+                channel = FileChannel.open(partial.getPartFile().toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                if (partial.getSegments().isEmpty()) {
+                    // Fichier porté à sa taille finale : chaque plage écrit à sa place
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.wrap(new byte[1]), partial.getSize() - 1);
+                    long segmentSize = partial.getSize() / INITIAL_DOWNLOAD_SEGMENTS;
+                    for (int i = 0; i < INITIAL_DOWNLOAD_SEGMENTS; i++) {
+                        long end = i == INITIAL_DOWNLOAD_SEGMENTS - 1 ? partial.getSize() : (i + 1) * segmentSize;
+                        partial.getSegments().add(new PartialDownload.Segment(i * segmentSize, end, 0));
+                    }
+                } else {
+                    System.out.println("Reprise du téléchargement de " + partial.getFileName() + " : "
+                        + (partial.getReceivedBytes() / 1024) + " Ko déjà reçus");
+                }
+                progress = new ProgressCounter(partial.getReceivedBytes(),
+                    onBytesReceived != null ? onBytesReceived : bytes -> {});
+                synchronized (this) {
+                    downloadStore.save(partial);
+                    for (PartialDownload.Segment segment : partial.getSegments()) {
+                        if (segment.getRemaining() > 0) {
+                            waiting.add(segment);
+                        }
+                    }
+                    windowStart = lastSave = System.nanoTime();
+                }
+            } catch (IOException e) {
+                closeChannel();
+                return CompletableFuture.failedFuture(e);
+            }
+            if (waiting.isEmpty()) {
+                finish();
+                return done;
+            }
+            int initial = Math.min(maxConnections, Math.max(INITIAL_DOWNLOAD_SEGMENTS, waiting.size()));
+            for (int i = 0; i < initial; i++) {
+                PartialDownload.Segment segment = nextSegment();
+                if (segment != null) {
+                    fetch(segment, 1);
+                }
+            }
+            scheduleTick();
+            return done;
+        }
+
+        /**
+         * @return une plage en attente, sinon la seconde moitié de la plus longue plage restante ;
+         *         null s'il ne reste rien d'assez grand à partager
+         */
+        private synchronized PartialDownload.Segment nextSegment() {
+            if (failure != null) {
+                return null;
+            }
+            if (!waiting.isEmpty()) {
+                running++;
+                return waiting.remove(0);
+            }
+            PartialDownload.Segment longest = null;
+            for (PartialDownload.Segment segment : partial.getSegments()) {
+                if (longest == null || segment.getRemaining() > longest.getRemaining()) {
+                    longest = segment;
+                }
+            }
+            // Marge d'un tampon : la connexion en cours peut avoir lu sans avoir encore écrit ;
+            // en plages vérifiées, celle en cours n'est comptée qu'à la fin et ne doit pas être coupée
+            long margin = verified ? VERIFIED_RANGE_SIZE : DOWNLOAD_BUFFER_SIZE;
+            long remaining = longest != null ? longest.getRemaining() - margin : 0;
+            if (remaining < 2 * MIN_SEGMENT_SIZE) {
+                return null;
+            }
+            long middle = longest.getPosition() + margin + remaining / 2;
+            PartialDownload.Segment stolen = new PartialDownload.Segment(middle, longest.getEnd(), 0);
+            longest.setEnd(middle);
+            partial.getSegments().add(stolen);
+            running++;
+            return stolen;
+        }
+
+        private void fetch(PartialDownload.Segment segment, int attempt) {
+            CompletableFuture<Void> call;
+            try {
+                long position;
+                long end;
+                synchronized (this) {
+                    position = segment.getPosition();
+                    end = verified ? Math.min(segment.getEnd(), position + VERIFIED_RANGE_SIZE) : segment.getEnd();
+                }
+                Request.Builder request = downloadRequest(partial)
+                    .header("Range", "bytes=" + position + "-" + (end - 1))
+                    .header("If-Range", partial.getEtag());
+                if (verified) {
+                    request.header(ContentDigest.WANT_CONTENT_DIGEST_HEADER, "sha-256");
+                }
+                call = scope.track(enqueue(request.build(), response -> {
+                    if (response.code() != 206) {
+                        throw new ContentChangedException(response.code());
+                    }
+                    long[] range = parseContentRange(response.header("Content-Range"));
+                    if (range[0] != position) {
+                        throw new ContentChangedException(response.code());
+                    }
+                    if (verified) {
+                        copyVerified(downloadLimiter.limit(response.body()), segment, position, end,
+                            ContentDigest.parse(response.header(ContentDigest.CONTENT_DIGEST_HEADER)));
+                    } else {
+                        copy(downloadLimiter.limit(response.body()), segment);
+                    }
+                    return null;
+                }));
+            } catch (IOException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((ignored, error) -> segmentFinished(segment, attempt, error));
+        }
+
+        private void copy(ResponseBody body, PartialDownload.Segment segment) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(DOWNLOAD_BUFFER_SIZE);
+            try (BufferedSource source = body.source()) {
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    long position;
+                    synchronized (this) {
+                        // La plage a pu être raccourcie par un partage : le reste revient à une autre connexion
+                        long allowed = Math.min(buffer.remaining(), segment.getRemaining());
+                        buffer.limit((int) allowed);
+                        position = segment.getPosition();
+                    }
+                    int length = buffer.remaining();
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    boolean complete;
+                    synchronized (this) {
+                        segment.setWritten(segment.getWritten() + length);
+                        windowBytes += length;
+                        complete = segment.getRemaining() == 0;
+                    }
+                    progress.add(length);
+                    if (complete) {
+                        return;
+                    }
+                    buffer.clear();
+                }
+            }
+            synchronized (this) {
+                if (segment.getRemaining() > 0) {
+                    throw new IOException("Plage incomplète: " + segment.getRemaining() + " octets manquants");
+                }
+            }
+        }
+
+        /**
+         * Écrit la plage {@code [start, end)} en calculant son empreinte au passage ; elle n'est comptée
+         * dans le segment qu'une fois comparée à celle annoncée par le serveur.
+         */
+        private void copyVerified(ResponseBody body, PartialDownload.Segment segment, long start, long end,
+                                  String expected) throws IOException {
+            if (expected == null) {
+                throw new IOException("Empreinte de la plage " + start + "-" + end + " absente de la réponse");
+            }
+            ContentDigest digest = new ContentDigest();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(DOWNLOAD_BUFFER_SIZE);
+            long position = start;
+            try (BufferedSource source = body.source()) {
+                while (position < end && source.read(buffer) != -1) {
+                    buffer.flip();
+                    buffer.limit((int) Math.min(buffer.limit(), end - position));
+                    int length = buffer.remaining();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    synchronized (this) {
+                        windowBytes += length;
+                    }
+                    progress.add(length);
+                    buffer.clear();
+                }
+            } catch (IOException e) {
+                // La plage repart de son début : ses octets ne comptent plus dans la progression
+                progress.add(start - position);
+                throw e;
+            }
+            if (position < end || !expected.equalsIgnoreCase(digest.hex())) {
+                progress.add(start - position);
+                throw position < end
+                    ? new IOException("Plage incomplète: " + (end - position) + " octets manquants")
+                    : new ContentDigest.MismatchException("Plage " + start + "-" + end + " altérée");
+            }
+            synchronized (this) {
+                segment.setWritten(end - segment.getStart());
+            }
+        }
+
+        private void segmentFinished(PartialDownload.Segment segment, int attempt, Throwable error) {
+            Throwable cause = error != null ? causeOf(error) : null;
+            if (cause != null && !scope.cancelled && !(cause instanceof ContentChangedException)
+                    && attempt < SEGMENT_ATTEMPTS) {
+                // Coupure d'une connexion : la plage repart de son dernier octet écrit
+                System.out.println("Nouvel essai de la plage " + segment.getPosition() + "-" + segment.getEnd()
+                    + " de " + partial.getFileName() + " (" + cause.getMessage() + ")");
+                CompletableFuture.delayedExecutor(RETRY_BASE_DELAY_MS * attempt, TimeUnit.MILLISECONDS)
+                    .execute(() -> fetch(segment, attempt + 1));
+                return;
+            }
+            if (cause == null && verified) {
+                boolean more;
+                synchronized (this) {
+                    more = failure == null && segment.getRemaining() > 0;
+                }
+                if (more) {
+                    // Plage suivante du même segment, sur la même connexion
+                    fetch(segment, 1);
+                    return;
+                }
+            }
+            // La connexion libérée enchaîne sur une autre plage avant d'être décomptée
+            PartialDownload.Segment next = cause == null ? nextSegment() : null;
+            boolean last;
+            synchronized (this) {
+                running--;
+                if (cause != null && failure == null) {
+                    failure = scope.cancelled ? new CancellationException("Téléchargement annulé") : cause;
+                }
+                last = running == 0;
+            }
+            if (cause != null) {
+                scope.cancel();
+            }
+            if (next != null) {
+                fetch(next, 1);
+            } else if (last) {
+                finish();
+            }
+        }
+
+        /**
+         * Mesure le débit, ajuste le nombre de connexions et enregistre la progression.
+         */
+        private void scheduleTick() {
+            CompletableFuture.delayedExecutor(TICK_MS, TimeUnit.MILLISECONDS).execute(() -> {
+                if (done.isDone()) {
+                    return;
+                }
+                boolean grow = false;
+                long now = System.nanoTime();
+                synchronized (this) {
+                    if (failure != null) {
+                        return;
+                    }
+                    long elapsed = now - windowStart;
+                    if (growing && elapsed >= TimeUnit.MILLISECONDS.toNanos(EVALUATION_MS)) {
+                        double rate = windowBytes * 1e9 / elapsed;
+                        if (rateBeforeGrowth >= 0 && rate - rateBeforeGrowth < perConnectionBeforeGrowth * MIN_CONNECTION_GAIN) {
+                            growing = false;
+                            System.out.println("Téléchargement de " + partial.getFileName() + " : " + running
+                                + " connexion(s), " + (long) (rate / 1024) + " Ko/s");
+                        } else if (running >= maxConnections) {
+                            growing = false;
+                        } else {
+                            rateBeforeGrowth = rate;
+                            perConnectionBeforeGrowth = rate / Math.max(1, running);
+                            grow = true;
+                        }
+                        windowStart = now;
+                        windowBytes = 0;
+                    }
+                }
+                if (grow) {
+                    PartialDownload.Segment segment = nextSegment();
+                    if (segment != null) {
+                        fetch(segment, 1);
+                    }
+                }
+                if (now - lastSave >= TimeUnit.MILLISECONDS.toNanos(SAVE_INTERVAL_MS)) {
+                    lastSave = now;
+                    saveProgress();
+                }
+                scheduleTick();
+            });
+        }
+
+        /**
+         * Enregistre les plages écrites, après synchronisation : la description ne doit jamais
+         * annoncer des octets encore en mémoire.
+         */
+        private void saveProgress() {
+            try {
+                channel.force(false);
+                synchronized (this) {
+                    downloadStore.save(partial);
+                }
+            } catch (IOException e) {
+                System.err.println("Progression du téléchargement non enregistrée: " + e.getMessage());
+            }
+        }
+
+        private void finish() {
+            if (failure == null) {
+                try {
+                    channel.force(false);
+                    closeChannel();
+                    done.complete(completeDownload(partial));
+                } catch (IOException e) {
+                    closeChannel();
+                    done.completeExceptionally(e);
+                }
+                return;
+            }
+            if (failure instanceof ContentDigest.MismatchException) {
+                // Plage toujours altérée malgré les nouveaux essais
+                closeChannel();
+                try {
+                    done.completeExceptionally(quarantine(partial, failure.getMessage()));
+                } catch (IOException e) {
+                    done.completeExceptionally(e);
+                }
+                return;
+            }
+            if (failure instanceof ContentChangedException) {
+                closeChannel();
+                downloadStore.discard(partial);
+                done.completeExceptionally(new IOException(
+                    "Le fichier distant a changé pendant le téléchargement : relancez le téléchargement"));
+                return;
+            }
+            // Annulation ou échec : les plages déjà écrites sont conservées pour une reprise
+            saveProgress();
+            closeChannel();
+            done.completeExceptionally(failure);
+        }
+
+        private void closeChannel() {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Erreur à la fermeture de " + partial.getPartFile() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Réponse à une plage qui n'en est pas une : la version distante ne correspond plus à l'ETag.
+     */
+    private static final class ContentChangedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ContentChangedException(int status) {
+            super("Contenu distant modifié (réponse " + status + " à une plage)");
+        }
+    }
+
+    /**
+     * PUT /uploads/{id}/chunks/{n} (rejouable : renvoyer un bloc le remplace à l'identique)
+     *
+     * L'empreinte des octets du bloc est calculée pendant l'envoi et comparée à celle que le serveur
+     * a calculée à la réception (champ {@code sha256}) : un bloc altéré est renvoyé aussitôt, plutôt
+     * que découvert à l'assemblage du fichier.
+     */
+    private CompletableFuture<Void> uploadChunk(UploadSession session, FileChannel channel, int index,
+                                                ProgressCounter progress, UploadCompression.Stats compression,
+                                                CancellationScope scope) {
+        try {
+            ContentDigest digest = new ContentDigest();
+            RequestBody body = digest.wrap(
+                new FileRegionBody(channel, session.getChunkOffset(index), session.getChunkLength(index)));
+            if (progress != null) {
+                // Compté avant compression : la progression reste en octets du fichier
+                body = new CountingRequestBody(body, progress);
+            }
+            Request.Builder request = new Request.Builder()
+                .url(baseUrl + "uploads/" + session.getUploadId() + "/chunks/" + index)
+                .addHeader("Authorization", "Bearer " + requireToken());
+            if (compression != null) {
+                body = new UploadCompression.GzipRequestBody(body, compression);
+                request.addHeader("Content-Encoding", "gzip");
+            }
+            return sendChunk(request.put(uploadLimiter.limit(body)).build(), index, digest, scope, 1);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<Void> sendChunk(Request request, int index, ContentDigest digest,
+                                              CancellationScope scope, int attempt) {
+        return scope.track(enqueue(request, response -> {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "";
+                throw new IOException("Échec de l'envoi du bloc " + index + ": " + response.code() + " - " + errorBody);
+            }
+            String received = response.body() != null
+                ? jsonMapper.readTree(response.body().string()).path("sha256").asText("") : "";
+            if (!received.isEmpty() && !received.equalsIgnoreCase(digest.hex())) {
+                throw new ContentDigest.MismatchException("Bloc " + index + " altéré pendant l'envoi (essai "
+                    + attempt + "/" + CHUNK_DIGEST_ATTEMPTS + ")");
+            }
+            return (Void) null;
+        })).exceptionallyCompose(error -> {
+            Throwable cause = causeOf(error);
+            if (cause instanceof ContentDigest.MismatchException && attempt < CHUNK_DIGEST_ATTEMPTS
+                    && !scope.cancelled) {
+                System.err.println(cause.getMessage() + " : nouvel envoi");
+                return sendChunk(request, index, digest, scope, attempt + 1);
+            }
+            return CompletableFuture.failedFuture(cause);
+        });
+    }
+
+    /**
+     * Assemble le fichier côté serveur une fois tous les blocs reçus.
+     * POST /uploads/{id}/commit → {id}
+     */
+    private CompletableFuture<Integer> commitUpload(UploadSession session, String sha256, CancellationScope scope) {
+        try {
+            Request request = new Request.Builder()
+                .url(baseUrl + "uploads/" + session.getUploadId() + "/commit")
+                .post(RequestBody.create(new byte[0], null))
+                // Clé liée à la session : un commit rejoué ne crée pas un second fichier
+                .addHeader(RetryPolicy.IDEMPOTENCY_KEY_HEADER, "commit-" + session.getUploadId())
+                .addHeader("Authorization", "Bearer " + requireToken())
+                .build();
+            return scope.track(enqueue(request, response -> {
+                // La session ne sert plus, même si le contenu assemblé est refusé : il faudra tout renvoyer
+                uploadStore.delete(session);
+                return handleUploadResponse(response, session.getFileName(), sha256);
+            }));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void saveSession(UploadSession session) {
+        try {
+            uploadStore.save(session);
+        } catch (IOException e) {
+            // Pas bloquant : à la reprise, le serveur indique de toute façon les blocs reçus
+            System.err.println("Impossible d'enregistrer la session d'upload: " + e.getMessage());
+        }
+    }
+
+    private String requireToken() throws IOException {
+        if (!isAuthenticated()) {
+            throw new IOException("Non authentifié. Veuillez vous connecter d'abord.");
+        }
+        return authToken;
+    }
+
+    /**
+     * Supprime un fichier
+     * DELETE /files/{id} (un fichier déjà supprimé, 404, compte comme un succès)
+     * @param fileId ID du fichier à supprimer
+     * @throws IOException En cas d'erreur réseau
+     */
+    public void deleteFile(Integer fileId) throws IOException {
+        execute(buildDeleteFileRequest(fileId), this::handleDeleteFileResponse);
+    }
+
+    /**
+     * Variante asynchrone de {@link #deleteFile(Integer)}.
+     */
+    public CompletableFuture<Void> deleteFileAsync(Integer fileId) {
+        try {
+            return enqueue(buildDeleteFileRequest(fileId), this::handleDeleteFileResponse);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Request buildDeleteFileRequest(Integer fileId) throws IOException {
+        if (!isAuthenticated()) {
+            throw new IOException("Non authentifié. Veuillez vous connecter d'abord.");
+        }
+        
+        if (fileId == null) {
+            throw new IOException("ID du fichier invalide");
+        }
+        
+        return new Request.Builder()
+            .url(baseUrl + "files/" + fileId)
+            .delete()
+            .addHeader("Authorization", "Bearer " + authToken)
+            .build();
+    }
+
+    private Void handleDeleteFileResponse(Response response) throws IOException {
+        // Déjà supprimé, y compris par un essai précédent dont la réponse s'est perdue
+        if (!response.isSuccessful() && response.code() != 404) {
+            String errorBody = response.body() != null ? response.body().string() : "";
+            throw new IOException("Échec de la suppression du fichier: " + response.code() + " - " + errorBody);
+        }
+        return null;
+    }
+
+    /**
+     * Supprime un dossier (et tous les fichiers qu'il contient)
+     * DELETE /folders/{id} (un dossier déjà supprimé, 404, compte comme un succès)
+     * @param folderId ID du dossier à supprimer
+     * @throws IOException En cas d'erreur réseau
+     */
+    public void deleteFolder(Integer folderId) throws IOException {
+        execute(buildDeleteFolderRequest(folderId), this::handleDeleteFolderResponse);
+    }
+
+    /**
+     * Variante asynchrone de {@link #deleteFolder(Integer)}.
+     */
+    public CompletableFuture<Void> deleteFolderAsync(Integer folderId) {
+        try {
+            return enqueue(buildDeleteFolderRequest(folderId), this::handleDeleteFolderResponse);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Request buildDeleteFolderRequest(Integer folderId) throws IOException {
+        if (!isAuthenticated()) {
+            throw new IOException("Non authentifié. Veuillez vous connecter d'abord.");
+        }
+        
+        if (folderId == null) {
+            throw new IOException("ID du dossier invalide");
+        }
+        
+        return new Request.Builder()
+            .url(baseUrl + "folders/" + folderId)
+            .delete()
+            .addHeader("Authorization", "Bearer " + authToken)
+            .build();
+    }
+
+    private Void handleDeleteFolderResponse(Response response) throws IOException {
+        // Déjà supprimé, y compris par un essai précédent dont la réponse s'est perdue
+        if (!response.isSuccessful() && response.code() != 404) {
+            String errorBody = response.body() != null ? response.body().string() : "";
+            throw new IOException("Échec de la suppression du dossier: " + response.code() + " - " + errorBody);
+        }
+        return null;
+    }
+
+    /**
+     * Supprime plusieurs fichiers, avec au plus {@link #getBatchConcurrency()} requêtes en vol.
+     * Un fichier déjà supprimé (404) compte comme un succès.
+     * @param onItemDone appelé après chaque fichier (erreur null en cas de succès), depuis un thread d'arrière-plan ; peut être null
+     * @return le bilan fichier par fichier ; le future n'échoue jamais
+     */
+    public CompletableFuture<BatchResult> deleteFilesAsync(List<Integer> fileIds, BiConsumer<Integer, Throwable> onItemDone) {
+        return new BatchRunner(fileIds, this::deleteFileAsync, onItemDone).start();
+    }
+
+    /**
+     * Supprime plusieurs dossiers (avec leur contenu), avec au plus {@link #getBatchConcurrency()} requêtes en vol.
+     * Un dossier déjà supprimé (404) compte comme un succès.
+     * @param onItemDone appelé après chaque dossier (erreur null en cas de succès), depuis un thread d'arrière-plan ; peut être null
+     * @return le bilan dossier par dossier ; le future n'échoue jamais
+     */
+    public CompletableFuture<BatchResult> deleteFoldersAsync(List<Integer> folderIds, BiConsumer<Integer, Throwable> onItemDone) {
+        return new BatchRunner(folderIds, this::deleteFolderAsync, onItemDone).start();
+    }
+
+    /**
+     * Quota simulé: 2 Go max, 350 Mo utilisés.
+     * TODO: Remplacer par un vrai appel API
+     */
+    public Quota getQuota() {
+        return new Quota(350L * 1024 * 1024, 2L * 1024 * 1024 * 1024);
+    }
+
+    /**
+     * Exécute une requête de manière bloquante et délègue le traitement de la réponse.
+     * Les requêtes rejouables sont réessayées sur erreur réseau ou code temporaire ;
+     * une erreur levée pendant la lecture du corps n'est jamais rejouée (des éléments
+     * ont pu être transmis au consommateur).
+     */
+    private <T> T execute(Request request, ResponseHandler<T> handler) throws IOException {
+        RetryPolicy policy = retryPolicy;
+        boolean retryable = policy.isRetryable(request);
+        for (int attempt = 1; ; attempt++) {
+            boolean lastAttempt = !retryable || attempt >= policy.getMaxAttempts();
+            Response response;
+            try {
+                response = httpClient.newCall(request).execute();
+            } catch (IOException e) {
+                if (lastAttempt) {
+                    throw e;
+                }
+                long delay = policy.delayMillis(attempt, null);
+                logRetry(request, attempt, e.getMessage(), delay);
+                sleepBeforeRetry(delay);
+                continue;
+            }
+            
+            // Réponse retenue : son traitement est hors des nouveaux essais, ses erreurs remontent telles quelles
+            if (lastAttempt || !policy.isRetryableStatus(response.code())) {
+                try (response) {
+                    return handler.handle(response);
+                }
+            }
+            long delay;
+            try (response) {
+                delay = policy.delayMillis(attempt, response);
+            }
+            logRetry(request, attempt, "code " + response.code(), delay);
+            sleepBeforeRetry(delay);
+        }
+    }
+
+    private static void sleepBeforeRetry(long delay) throws IOException {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new java.io.InterruptedIOException("Nouvel essai interrompu");
+        }
+    }
+
+    /**
+     * Met une requête en file dans le dispatcher OkHttp.
+     * La réponse est traitée puis fermée sur le thread du dispatcher ;
+     * annuler le future retourné annule l'appel HTTP.
+     */
+    private <T> CompletableFuture<T> enqueue(Request request, ResponseHandler<T> handler) {
+        return new RetryingCall<>(request, handler).start();
+    }
+
+    private void logRetry(Request request, int attempt, String reason, long delay) {
+        System.out.println("Nouvel essai de " + request.method() + " " + request.url().encodedPath()
+            + " dans " + delay + " ms (essai " + attempt + " en échec: " + reason + ")");
+    }
+
+    /**
+     * Appel asynchrone avec nouveaux essais et, pour les GET, requête doublée si la réponse tarde.
+     *
+     * Une seule réponse est traitée : la première qui n'est pas un échec temporaire
+     * "réserve" l'appel, les autres envois sont annulés et leurs réponses fermées.
+     */
+    private final class RetryingCall<T> {
+        private final Request request;
+        private final ResponseHandler<T> handler;
+        private final RetryPolicy policy = retryPolicy;
+        private final boolean retryable;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final List<Call> calls = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        RetryingCall(Request request, ResponseHandler<T> handler) {
+            this.request = request;
+            this.handler = handler;
+            this.retryable = policy.isRetryable(request);
+        }
+
+        CompletableFuture<T> start() {
+            future.whenComplete((result, error) -> {
+                if (future.isCancelled()) {
+                    calls.forEach(Call::cancel);
+                }
+            });
+            send();
+            scheduleHedge();
+            return future;
+        }
+
+        private void send() {
+            attempts.incrementAndGet();
+            inFlight.incrementAndGet();
+            long startNanos = System.nanoTime();
+            Call call = httpClient.newCall(request);
+            calls.add(call);
+            
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    inFlight.decrementAndGet();
+                    attemptFailed(e.getMessage(), e, null);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    inFlight.decrementAndGet();
+                    try (response) {
+                        if (canRetry() && policy.isRetryableStatus(response.code())) {
+                            attemptFailed("code " + response.code(), null, response);
+                            return;
+                        }
+                        if (!claimed.compareAndSet(false, true)) {
+                            return; // L'autre envoi a déjà répondu
+                        }
+                        for (Call other : calls) {
+                            if (other != call) {
+                                other.cancel();
+                            }
+                        }
+                        if ("GET".equals(request.method())) {
+                            getLatencies.record((System.nanoTime() - startNanos) / 1_000_000);
+                        }
+                        future.complete(handler.handle(response));
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+            });
+        }
+
+        private boolean canRetry() {
+            return retryable && attempts.get() < policy.getMaxAttempts();
+        }
+
+        /**
+         * Échec temporaire d'un envoi : nouvel essai après backoff, sauf si un envoi doublé est encore en cours.
+         */
+        private void attemptFailed(String reason, IOException error, Response response) {
+            if (future.isDone() || claimed.get() || inFlight.get() > 0) {
+                return;
+            }
+            if (!canRetry()) {
+                future.completeExceptionally(error != null ? error : new IOException("Échec de la requête: " + reason));
+                return;
+            }
+            long delay = policy.delayMillis(attempts.get(), response);
+            logRetry(request, attempts.get(), reason, delay);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!future.isDone()) {
+                    send();
+                }
+            });
+        }
+
+        /**
+         * Double un GET resté sans réponse au-delà du percentile configuré.
+         */
+        private void scheduleHedge() {
+            if (hedgingPercentile <= 0 || !"GET".equals(request.method())) {
+                return;
+            }
+            long threshold = getLatencies.percentile(hedgingPercentile, HEDGE_MIN_SAMPLES);
+            if (threshold < 0) {
+                return;
+            }
+            long delay = Math.max(threshold, HEDGE_MIN_DELAY_MS);
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!future.isDone() && !claimed.get() && attempts.get() == 1) {
+                    System.out.println("Requête doublée: " + request.url().encodedPath() + " (sans réponse après " + delay + " ms)");
+                    send();
+                }
+            });
+        }
+    }
+
+    /**
+     * Exécute une opération sur une liste d'identifiants en pipeline : dès qu'un appel
+     * se termine, le suivant part, sans jamais dépasser {@code batchConcurrency} appels en vol.
+     */
+    private final class BatchRunner {
+        private final List<Integer> ids;
+        private final Function<Integer, CompletableFuture<Void>> operation;
+        private final BiConsumer<Integer, Throwable> onItemDone;
+        private final int concurrency = batchConcurrency;
+        private final BatchResult result;
+        private final CompletableFuture<BatchResult> done = new CompletableFuture<>();
+        private int next;
+        private int inFlight;
+
+        BatchRunner(List<Integer> ids, Function<Integer, CompletableFuture<Void>> operation,
+                    BiConsumer<Integer, Throwable> onItemDone) {
+            this.ids = new ArrayList<>(ids);
+            this.operation = operation;
+            this.onItemDone = onItemDone;
+            this.result = new BatchResult(this.ids.size());
+        }
+
+        CompletableFuture<BatchResult> start() {
+            if (ids.isEmpty()) {
+                done.complete(result);
+            } else {
+                pump();
+            }
+            return done;
+        }
+
+        private void pump() {
+            List<Integer> toStart = new ArrayList<>();
+            synchronized (this) {
+                while (inFlight < concurrency && next < ids.size()) {
+                    toStart.add(ids.get(next++));
+                    inFlight++;
+                }
+            }
+            for (Integer id : toStart) {
+                // Asynchrone : un échec immédiat (ex. non authentifié) ne doit pas empiler les appels récursifs
+                operation.apply(id).whenCompleteAsync((ignored, error) -> finished(id, error));
+            }
+        }
+
+        private void finished(Integer id, Throwable error) {
+            Throwable cause = error != null ? causeOf(error) : null;
+            result.record(id, cause);
+            if (onItemDone != null) {
+                onItemDone.accept(id, cause);
+            }
+            
+            boolean allDone;
+            synchronized (this) {
+                inFlight--;
+                allDone = inFlight == 0 && next >= ids.size();
+            }
+            if (allDone) {
+                done.complete(result);
+            } else {
+                pump();
+            }
+        }
+    }
+
+    /**
+     * Corps de requête lisant une portion d'un fichier, sans la charger en mémoire.
+     * Les lectures sont positionnelles : plusieurs corps peuvent partager le même canal
+     * et la requête peut être rejouée.
+     */
+    private static class FileRegionBody extends RequestBody {
+        private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final FileChannel channel;
+        private final long offset;
+        private final long length;
+
+        FileRegionBody(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return OCTET_STREAM;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear();
+                buffer.limit((int) Math.min(BUFFER_SIZE, remaining));
+                // Lecture positionnelle : ne dépend pas de la position courante du canal
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("Fichier tronqué pendant l'upload");
+                }
+                buffer.flip();
+                sink.write(buffer);
+                position += read;
+                remaining -= read;
+            }
+        }
+    }
+
+    /**
+     * Corps de requête qui compte les octets écrits vers le réseau.
+     * Une requête rejouée réécrit tout son corps : les octets de l'essai précédent
+     * sont alors retirés du total pour ne pas être comptés deux fois.
+     */
+    private static class CountingRequestBody extends RequestBody {
+        private final RequestBody delegate;
+        private final ProgressCounter progress;
+        private long written;
+
+        CountingRequestBody(RequestBody delegate, ProgressCounter progress) {
+            this.delegate = delegate;
+            this.progress = progress;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            synchronized (this) {
+                if (written > 0) {
+                    progress.add(-written);
+                    written = 0;
+                }
+            }
+            BufferedSink counting = Okio.buffer(new ForwardingSink(sink) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    super.write(source, byteCount);
+                    synchronized (CountingRequestBody.this) {
+                        written += byteCount;
+                    }
+                    progress.add(byteCount);
+                }
+            });
+            delegate.writeTo(counting);
+            counting.flush();
+        }
+    }
+
+    /**
+     * Total des octets envoyés pour un transfert, éventuellement réparti sur plusieurs requêtes.
+     */
+    private static final class ProgressCounter {
+        private final AtomicLong total;
+        private final LongConsumer listener;
+
+        ProgressCounter(long initial, LongConsumer listener) {
+            this.total = new AtomicLong(initial);
+            this.listener = listener;
+            listener.accept(initial);
+        }
+
+        void add(long delta) {
+            listener.accept(total.addAndGet(delta));
+        }
+    }
+
+    /**
+     * Regroupe les appels d'une opération en plusieurs étapes pour pouvoir tous les annuler.
+     * Un appel suivi après l'annulation est annulé immédiatement.
+     */
+    private static final class CancellationScope {
+        private final List<CompletableFuture<?>> calls = new CopyOnWriteArrayList<>();
+        private volatile boolean cancelled;
+
+        <T> CompletableFuture<T> track(CompletableFuture<T> call) {
+            calls.add(call);
+            call.whenComplete((result, error) -> calls.remove(call));
+            if (cancelled) {
+                call.cancel(true);
+            }
+            return call;
+        }
+
+        void cancel() {
+            cancelled = true;
+            calls.forEach(call -> call.cancel(true));
+        }
+    }
+
+    /**
+     * Traitement d'une réponse HTTP (la fermeture est gérée par l'appelant).
+     */
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    /**
+     * Échec partiel ou total du chargement de l'arborescence.
+     * Les éléments de la liste qui a abouti ont déjà été transmis au listener.
+     */
+    public static class ListingException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final Throwable folderError;
+        private final Throwable fileError;
+
+        ListingException(Throwable folderError, Throwable fileError) {
+            super(describe(folderError, fileError), folderError != null ? folderError : fileError);
+            this.folderError = folderError;
+            this.fileError = fileError;
+            if (folderError != null && fileError != null) {
+                addSuppressed(fileError);
+            }
+        }
+
+        private static String describe(Throwable folderError, Throwable fileError) {
+            if (folderError != null && fileError != null) {
+                return "Dossiers et fichiers indisponibles: " + folderError.getMessage() + " / " + fileError.getMessage();
+            }
+            return folderError != null
+                ? "Dossiers indisponibles: " + folderError.getMessage()
+                : "Fichiers indisponibles: " + fileError.getMessage();
+        }
+
+        /** Erreur de la liste des dossiers, ou null si elle a abouti */
+        public Throwable getFolderError() { return folderError; }
+        /** Erreur de la liste des fichiers, ou null si elle a abouti */
+        public Throwable getFileError() { return fileError; }
+    }
+
+    /**
+     * Bilan d'une opération par lot : succès et échecs élément par élément.
+     */
+    public static class BatchResult {
+        private final int total;
+        private final List<Integer> succeeded = new ArrayList<>();
+        private final Map<Integer, Throwable> failures = new java.util.LinkedHashMap<>();
+
+        BatchResult(int total) {
+            this.total = total;
+        }
+
+        synchronized void record(Integer id, Throwable error) {
+            if (error == null) {
+                succeeded.add(id);
+            } else {
+                failures.put(id, error);
+            }
+        }
+
+        public int getTotal() { return total; }
+        public synchronized List<Integer> getSucceeded() { return new ArrayList<>(succeeded); }
+        public synchronized Map<Integer, Throwable> getFailures() { return new java.util.LinkedHashMap<>(failures); }
+        public synchronized boolean hasFailures() { return !failures.isEmpty(); }
+
+        /**
+         * Résumé lisible, avec le détail des premiers échecs.
+         * @param nameOf nom à afficher pour un identifiant
+         */
+        public synchronized String describe(Function<Integer, String> nameOf) {
+            StringBuilder text = new StringBuilder();
+            text.append(succeeded.size()).append(" / ").append(total).append(" élément(s) supprimé(s)");
+            if (!failures.isEmpty()) {
+                text.append(", ").append(failures.size()).append(" échec(s) :");
+                int shown = 0;
+                for (Map.Entry<Integer, Throwable> failure : failures.entrySet()) {
+                    if (shown++ == 10) {
+                        text.append("\n… et ").append(failures.size() - 10).append(" autre(s)");
+                        break;
+                    }
+                    text.append("\n- ").append(nameOf.apply(failure.getKey()))
+                        .append(" : ").append(failure.getValue().getMessage());
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Reçoit les éléments d'une arborescence chargée en flux, par lots.
+     */
+    public interface ListingListener {
+        void onFolders(List<FolderDto> folders);
+        void onFiles(List<FileDto> files);
+    }
+
+    /**
+     * Regroupe les éléments décodés en lots de {@link #LISTING_BATCH_SIZE}.
+     * Un lot incomplet est transmis à la fin de chaque page via {@link #flush()}.
+     */
+    private static class ListingBatcher<T> implements Consumer<T> {
+        private final Consumer<List<T>> sink;
+        private List<T> batch = new ArrayList<>();
+
+        ListingBatcher(Consumer<List<T>> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void accept(T item) {
+            batch.add(item);
+            if (batch.size() >= LISTING_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!batch.isEmpty()) {
+                List<T> full = batch;
+                batch = new ArrayList<>();
+                sink.accept(full);
+            }
+        }
+    }
+
+    /**
+     * Changement élémentaire du flux de synchronisation.
+     */
+    public static class Change {
+        String op;
+        String type;
+        Integer id;
+        FolderDto folder;
+        FileDto file;
+
+        public boolean isDelete() { return "delete".equals(op); }
+        public boolean isFolder() { return "folder".equals(type); }
+        public boolean isFile() { return "file".equals(type); }
+    }
+
+    /**
+     * Ensemble de changements à appliquer, avec le jeton à utiliser pour la prochaine synchronisation.
+     */
+    public static class ChangeSet {
+        final List<Change> changes = new ArrayList<>();
+        String nextToken;
+        boolean hasMore;
+
+        public List<Change> getChanges() { return changes; }
+        public String getNextToken() { return nextToken; }
+
+        /**
+         * Applique les changements, dans l'ordre, à l'arborescence en mémoire.
+         */
+        public void applyTo(VaultTree tree) {
+            for (Change change : changes) {
+                if (change.isFolder()) {
+                    if (change.isDelete()) {
+                        tree.removeFolder(change.id != null ? change.id : change.folder != null ? change.folder.id : null);
+                    } else if (change.folder != null) {
+                        tree.upsertFolder(change.folder.id, change.folder.name, change.folder.parentId);
+                    }
+                } else if (change.isFile()) {
+                    if (change.isDelete()) {
+                        tree.removeFile(change.id != null ? change.id : change.file != null ? change.file.id : null);
+                    } else if (change.file != null) {
+                        tree.upsertFile(change.file.folderId, change.file.toFileEntry());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compteurs du cache HTTP (toutes requêtes confondues). Une revalidation
+     * conclue par un 304 compte à la fois comme appel réseau et comme hit.
+     */
+    public static class CacheStats {
+        private final int requestCount;
+        private final int networkCount;
+        private final int hitCount;
+
+        CacheStats(int requestCount, int networkCount, int hitCount) {
+            this.requestCount = requestCount;
+            this.networkCount = networkCount;
+            this.hitCount = hitCount;
+        }
+
+        public int getRequestCount() { return requestCount; }
+        public int getNetworkCount() { return networkCount; }
+        public int getHitCount() { return hitCount; }
+        public int getMissCount() { return requestCount - hitCount; }
+
+        @Override
+        public String toString() {
+            return "Cache HTTP : " + requestCount + " requête(s), " + hitCount + " hit(s), "
+                + getMissCount() + " miss, " + networkCount + " appel(s) réseau";
+        }
+    }
+
+    /**
+     * DTO pour les dossiers
+     */
+    public static class FolderDto {
+        Integer id;
+        String name;
+        Integer parentId;
+
+        public Integer getId() { return id; }
+        public String getName() { return name; }
+        public Integer getParentId() { return parentId; }
+    }
+    
+    /**
+     * DTO pour les fichiers
+     */
+    public static class FileDto {
+        Integer id;
+        String filename;
+        long size;
+        Integer folderId;
+        Instant uploadedAt;
+        int currentVersion;
+
+        public Integer getId() { return id; }
+        public String getFilename() { return filename; }
+        public long getSize() { return size; }
+        public Integer getFolderId() { return folderId; }
+        public Instant getUploadedAt() { return uploadedAt; }
+        public int getCurrentVersion() { return currentVersion; }
+
+        public FileEntry toFileEntry() {
+            return FileEntry.of(id, filename, size, uploadedAt, currentVersion);
+        }
     }
 
     /**
@@ -532,4 +3226,4 @@ public class ApiClient {
             this.password = password;
         }
     }
-}
\ No newline at end of file
+}
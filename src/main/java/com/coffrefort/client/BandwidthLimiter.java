@@ -0,0 +1,151 @@
+package com.coffrefort.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+
+/**
+ * Limiteur de débit à seau de jetons, partagé par tous les transferts d'un même sens.
+ *
+ * Les octets sont débités par petites tranches au moment où ils passent dans le flux : un transfert
+ * en cours suit un changement de limite en quelques dizaines de millisecondes, sans être relancé.
+ * Le seau autorise une courte rafale ; au-delà, l'appelant attend que les jetons se reconstituent.
+ */
+final class BandwidthLimiter {
+
+    /** Profondeur du seau, en secondes de débit : rafale permise après une période calme. */
+    private static final double BURST_SECONDS = 0.25;
+    /** Durée visée pour une tranche : borne le temps de réaction à un changement de limite. */
+    private static final double SLICE_SECONDS = 0.05;
+    private static final long MIN_SLICE = 1024;
+    private static final long MAX_SLICE = 64 * 1024;
+
+    private volatile long bytesPerSecond;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond débit maximal, 0 pour illimité
+     */
+    void setRate(long bytesPerSecond) {
+        synchronized (this) {
+            refill(System.nanoTime());
+            this.bytesPerSecond = Math.max(0, bytesPerSecond);
+            tokens = Math.min(tokens, burst(this.bytesPerSecond));
+        }
+    }
+
+    long getRate() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Bloque jusqu'à ce que {@code bytes} octets puissent passer (au plus une tranche).
+     */
+    private void acquire(long bytes) throws InterruptedIOException {
+        long waitNanos;
+        synchronized (this) {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            refill(System.nanoTime());
+            // Le seau peut passer en négatif : la dette est remboursée par l'attente ci-dessous
+            tokens -= bytes;
+            waitNanos = tokens < 0 ? (long) (-tokens * 1e9 / bytesPerSecond) : 0;
+        }
+        if (waitNanos > 0) {
+            try {
+                Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Transfert interrompu pendant la limitation de débit");
+            }
+        }
+    }
+
+    private void refill(long now) {
+        if (bytesPerSecond > 0) {
+            tokens = Math.min(burst(bytesPerSecond), tokens + (now - lastRefill) * bytesPerSecond / 1e9);
+        }
+        lastRefill = now;
+    }
+
+    private static double burst(long rate) {
+        return Math.max(MIN_SLICE, rate * BURST_SECONDS);
+    }
+
+    private long sliceSize() {
+        long rate = bytesPerSecond;
+        return rate <= 0 ? Long.MAX_VALUE : Math.max(MIN_SLICE, Math.min(MAX_SLICE, (long) (rate * SLICE_SECONDS)));
+    }
+
+    Sink limit(Sink sink) {
+        return new ForwardingSink(sink) {
+            @Override
+            public void write(Buffer source, long byteCount) throws IOException {
+                while (byteCount > 0) {
+                    long slice = Math.min(byteCount, sliceSize());
+                    acquire(slice);
+                    super.write(source, slice);
+                    byteCount -= slice;
+                }
+            }
+        };
+    }
+
+    Source limit(Source source) {
+        return new ForwardingSource(source) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, Math.min(byteCount, sliceSize()));
+                if (read > 0) {
+                    acquire(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * Corps de requête envoyé au débit du limiteur (octets effectivement transmis, compression comprise).
+     */
+    RequestBody limit(RequestBody delegate) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return delegate.contentType();
+            }
+
+            @Override
+            public long contentLength() throws IOException {
+                return delegate.contentLength();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                BufferedSink limited = Okio.buffer(limit((Sink) sink));
+                delegate.writeTo(limited);
+                limited.emit();
+            }
+        };
+    }
+
+    /**
+     * Corps de réponse lu au débit du limiteur.
+     */
+    ResponseBody limit(ResponseBody delegate) {
+        BufferedSource limited = Okio.buffer(limit(delegate.source()));
+        return ResponseBody.create(limited, delegate.contentType(), delegate.contentLength());
+    }
+}
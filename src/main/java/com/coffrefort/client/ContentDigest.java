@@ -0,0 +1,145 @@
+package com.coffrefort.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+
+/**
+ * Empreinte SHA-256 calculée au fil d'un transfert, sur les octets qui passent : le fichier
+ * n'est jamais relu pour être vérifié.
+ *
+ * Le serveur annonce l'empreinte d'un téléchargement dans l'en-tête {@code Repr-Digest}
+ * (RFC 9530, {@code sha-256=:base64:}), celle d'une plage demandée avec {@code Want-Content-Digest}
+ * dans {@code Content-Digest}, et celle d'un envoi dans le champ {@code sha256} de sa réponse.
+ */
+final class ContentDigest {
+
+    static final String REPR_DIGEST_HEADER = "Repr-Digest";
+    static final String CONTENT_DIGEST_HEADER = "Content-Digest";
+    static final String WANT_CONTENT_DIGEST_HEADER = "Want-Content-Digest";
+
+    /**
+     * Contenu reçu ou envoyé différent de celui annoncé par le serveur.
+     */
+    static final class MismatchException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        MismatchException(String message) {
+            super(message);
+        }
+    }
+
+    private final MessageDigest digest;
+    private String hex;
+
+    ContentDigest() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Algorithme obligatoire sur toute JVM
+            throw new IllegalStateException(e);
+        }
+    }
+
+    synchronized void update(ByteBuffer data) {
+        digest.update(data);
+    }
+
+    synchronized void update(byte[] data, int offset, int length) {
+        digest.update(data, offset, length);
+    }
+
+    synchronized void reset() {
+        digest.reset();
+        hex = null;
+    }
+
+    /**
+     * @return l'empreinte en hexadécimal minuscule ; le calcul est terminé au premier appel
+     */
+    synchronized String hex() {
+        if (hex == null) {
+            hex = HexFormat.of().formatHex(digest.digest());
+        }
+        return hex;
+    }
+
+    /**
+     * @return l'empreinte SHA-256 annoncée par un en-tête {@code Repr-Digest} ou {@code Content-Digest},
+     *         en hexadécimal, ou null
+     */
+    static String parse(String header) {
+        if (header == null) {
+            return null;
+        }
+        for (String member : header.split(",")) {
+            String[] pair = member.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("sha-256")) {
+                String value = pair[1].trim();
+                if (value.length() > 2 && value.startsWith(":") && value.endsWith(":")) {
+                    try {
+                        return HexFormat.of().formatHex(Base64.getDecoder().decode(value.substring(1, value.length() - 1)));
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Corps de requête dont les octets envoyés passent par cette empreinte ; elle repart de zéro
+     * à chaque envoi (nouvel essai).
+     */
+    RequestBody wrap(RequestBody delegate) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return delegate.contentType();
+            }
+
+            @Override
+            public long contentLength() throws IOException {
+                return delegate.contentLength();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                reset();
+                OutputStream digestInput = new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                        update(new byte[] {(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                        update(b, off, len);
+                    }
+                };
+                BufferedSink digesting = Okio.buffer(new ForwardingSink(sink) {
+                    @Override
+                    public void write(Buffer source, long byteCount) throws IOException {
+                        // Lu directement dans les segments du tampon, avant qu'ils ne partent
+                        source.copyTo(digestInput, 0, byteCount);
+                        super.write(source, byteCount);
+                    }
+                });
+                delegate.writeTo(digesting);
+                digesting.flush();
+            }
+        };
+    }
+}
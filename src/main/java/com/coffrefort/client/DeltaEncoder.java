@@ -0,0 +1,316 @@
+package com.coffrefort.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+import com.coffrefort.client.utils.RollingChecksum;
+
+import okio.BufferedSink;
+import okio.BufferedSource;
+
+/**
+ * Calcul d'un delta (à la rsync) entre un fichier local et la version distante dont le serveur
+ * a fourni les signatures de blocs.
+ *
+ * Le fichier est lu une seule fois : une fenêtre de la taille d'un bloc glisse octet par octet
+ * et chaque position dont la somme faible est connue du serveur est confirmée par la somme forte.
+ * Les blocs retrouvés sont envoyés comme références, le reste comme données brutes.
+ *
+ * Format du delta (entiers big-endian) :
+ * - {@code 'C'} premier bloc (int), nombre de blocs (int) : blocs consécutifs de la version de base ;
+ * - {@code 'D'} longueur (int), octets : données nouvelles ;
+ * - {@code 'E'} SHA-256 du fichier reconstruit (32 octets), toujours en dernier.
+ */
+final class DeltaEncoder {
+
+    static final byte OP_COPY = 'C';
+    static final byte OP_DATA = 'D';
+    static final byte OP_END = 'E';
+
+    /** Taille maximale d'une opération de données : borne la mémoire retenue. */
+    private static final int MAX_LITERAL = 1024 * 1024;
+    private static final int READ_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Signatures des blocs de la version distante ({@code GET /files/{id}/signatures}).
+     */
+    static final class Signatures {
+        private final int version;
+        private final long size;
+        private final int blockSize;
+        private final int[] weak;
+        private final long[] strong;
+
+        private Signatures(int version, long size, int blockSize, int[] weak, long[] strong) {
+            this.version = version;
+            this.size = size;
+            this.blockSize = blockSize;
+            this.weak = weak;
+            this.strong = strong;
+        }
+
+        /**
+         * Format : version (int), taille (long), taille de bloc (int), nombre de blocs (int),
+         * puis pour chaque bloc la somme faible (int) et la somme forte (long).
+         */
+        static Signatures read(BufferedSource source) throws IOException {
+            int version = source.readInt();
+            long size = source.readLong();
+            int blockSize = source.readInt();
+            int count = source.readInt();
+            if (blockSize <= 0 || count < 0 || (long) count * blockSize < size) {
+                throw new IOException("Signatures invalides (" + count + " blocs de " + blockSize + " octets)");
+            }
+            int[] weak = new int[count];
+            long[] strong = new long[count];
+            for (int i = 0; i < count; i++) {
+                weak[i] = source.readInt();
+                strong[i] = source.readLong();
+            }
+            return new Signatures(version, size, blockSize, weak, strong);
+        }
+
+        int getVersion() { return version; }
+        long getSize() { return size; }
+        int getBlockSize() { return blockSize; }
+        int getBlockCount() { return weak.length; }
+
+        long blockLength(int index) {
+            return Math.min(blockSize, size - (long) index * blockSize);
+        }
+    }
+
+    /**
+     * Bilan d'un delta : ce qui a été retrouvé chez le serveur et ce qui part réellement.
+     */
+    static final class Result {
+        private long literalBytes;
+        private long copiedBytes;
+
+        long getLiteralBytes() { return literalBytes; }
+        long getCopiedBytes() { return copiedBytes; }
+    }
+
+    private final Signatures signatures;
+    private final int blockSize;
+    /** Table de hachage des sommes faibles : premier bloc par case, puis chaînage. */
+    private final int[] heads;
+    private final int[] chain;
+    private final RollingChecksum checksum = new RollingChecksum();
+    private final MessageDigest fileDigest;
+    private final byte[] buffer;
+    private final Result result = new Result();
+
+    private FileChannel channel;
+    private BufferedSink out;
+    private long bytesRead;
+    private boolean endOfFile;
+    /** Index dans {@code buffer} : fin des données lues, début de la fenêtre, début des données en attente */
+    private int limit;
+    private int position;
+    private int literalStart;
+    private int copyStart = -1;
+    private int copyCount;
+
+    DeltaEncoder(Signatures signatures) {
+        this.signatures = signatures;
+        this.blockSize = signatures.getBlockSize();
+        int tableSize = Integer.highestOneBit(Math.max(16, signatures.getBlockCount() * 2));
+        this.heads = new int[tableSize];
+        this.chain = new int[signatures.getBlockCount()];
+        Arrays.fill(heads, -1);
+        // Chaînage en ordre croissant : le premier candidat est le bloc le plus ancien
+        for (int i = signatures.getBlockCount() - 1; i >= 0; i--) {
+            int slot = slot(signatures.weak[i]);
+            chain[i] = heads[slot];
+            heads[slot] = i;
+        }
+        this.buffer = new byte[MAX_LITERAL + blockSize + READ_SIZE];
+        try {
+            this.fileDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Écrit le delta de {@code file} dans {@code sink}.
+     * @param onBytesRead reçoit le nombre d'octets du fichier déjà parcourus ; peut être null
+     * @param cancelled consulté régulièrement : le calcul s'arrête par une {@link CancellationException}
+     */
+    Result encode(File file, BufferedSink sink, LongConsumer onBytesRead, BooleanSupplier cancelled) throws IOException {
+        out = sink;
+        try (FileChannel input = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            channel = input;
+            boolean windowValid = false;
+            while (true) {
+                if (limit - position <= blockSize && !endOfFile) {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("Calcul du delta annulé");
+                    }
+                    fill();
+                    if (onBytesRead != null) {
+                        onBytesRead.accept(bytesRead);
+                    }
+                }
+                if (limit - position < blockSize) {
+                    break;
+                }
+                if (!windowValid) {
+                    checksum.reset(buffer, position, blockSize);
+                    windowValid = true;
+                }
+
+                int block = find(checksum.weak(), position, blockSize);
+                if (block >= 0) {
+                    copy(block);
+                    position += blockSize;
+                    literalStart = position;
+                    windowValid = false;
+                    continue;
+                }
+                if (limit - position == blockSize) {
+                    // Plus rien à faire entrer dans la fenêtre : la fin est traitée à part
+                    position++;
+                    break;
+                }
+                checksum.roll(buffer[position], buffer[position + blockSize]);
+                position++;
+                if (position - literalStart >= MAX_LITERAL) {
+                    flushLiteral();
+                }
+            }
+            encodeTail();
+        }
+        flushLiteral();
+        flushCopy();
+        out.writeByte(OP_END);
+        out.write(fileDigest.digest());
+        out.flush();
+        return result;
+    }
+
+    /**
+     * Dernier bloc de la version de base, plus court que les autres : il ne peut correspondre
+     * qu'aux derniers octets du fichier.
+     */
+    private void encodeTail() throws IOException {
+        int remaining = limit - position;
+        int last = signatures.getBlockCount() - 1;
+        if (remaining > 0 && last >= 0 && signatures.blockLength(last) == remaining && remaining < blockSize) {
+            checksum.reset(buffer, position, remaining);
+            if (signatures.weak[last] == checksum.weak()
+                    && signatures.strong[last] == checksum.strong(buffer, position, remaining)) {
+                copy(last);
+                position = limit;
+                literalStart = limit;
+                return;
+            }
+        }
+        position = limit;
+    }
+
+    /**
+     * @return le bloc distant identique à la fenêtre, de préférence celui qui suit la dernière copie
+     */
+    private int find(int weak, int offset, int length) {
+        int candidate = heads[slot(weak)];
+        int found = -1;
+        long strong = 0;
+        boolean strongComputed = false;
+        int expected = copyStart >= 0 ? copyStart + copyCount : -1;
+        for (; candidate >= 0; candidate = chain[candidate]) {
+            if (signatures.weak[candidate] != weak || signatures.blockLength(candidate) != length) {
+                continue;
+            }
+            if (!strongComputed) {
+                strong = checksum.strong(buffer, offset, length);
+                strongComputed = true;
+            }
+            if (signatures.strong[candidate] == strong) {
+                if (candidate == expected) {
+                    return candidate;
+                }
+                if (found < 0) {
+                    found = candidate;
+                }
+            }
+        }
+        return found;
+    }
+
+    private int slot(int weak) {
+        int h = weak ^ (weak >>> 16);
+        return h & (heads.length - 1);
+    }
+
+    private void copy(int block) throws IOException {
+        flushLiteral();
+        if (copyStart >= 0 && block == copyStart + copyCount) {
+            copyCount++;
+        } else {
+            flushCopy();
+            copyStart = block;
+            copyCount = 1;
+        }
+        result.copiedBytes += signatures.blockLength(block);
+    }
+
+    private void flushCopy() throws IOException {
+        if (copyStart < 0) {
+            return;
+        }
+        out.writeByte(OP_COPY);
+        out.writeInt(copyStart);
+        out.writeInt(copyCount);
+        copyStart = -1;
+        copyCount = 0;
+    }
+
+    private void flushLiteral() throws IOException {
+        int length = position - literalStart;
+        if (length <= 0) {
+            return;
+        }
+        flushCopy();
+        out.writeByte(OP_DATA);
+        out.writeInt(length);
+        out.write(buffer, literalStart, length);
+        result.literalBytes += length;
+        literalStart = position;
+    }
+
+    /**
+     * Recharge le tampon : les données en attente et la fenêtre sont ramenées au début,
+     * puis complétées par la suite du fichier (comptée au passage dans l'empreinte globale).
+     */
+    private void fill() throws IOException {
+        int keep = Math.min(literalStart, position);
+        if (keep > 0) {
+            System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+            limit -= keep;
+            position -= keep;
+            literalStart -= keep;
+        }
+        ByteBuffer target = ByteBuffer.wrap(buffer, limit, buffer.length - limit);
+        while (target.hasRemaining()) {
+            int read = channel.read(target);
+            if (read < 0) {
+                endOfFile = true;
+                break;
+            }
+            fileDigest.update(buffer, limit, read);
+            limit += read;
+            bytesRead += read;
+        }
+    }
+}
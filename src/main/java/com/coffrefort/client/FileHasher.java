@@ -0,0 +1,64 @@
+package com.coffrefort.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Empreinte SHA-256 du contenu d'un fichier, calculée en un seul passage sans le charger en mémoire.
+ *
+ * Les gros fichiers sont projetés en mémoire ({@link FileChannel#map}) par fenêtres successives :
+ * le noyau lit directement dans les pages projetées, sans copie vers un tampon Java.
+ * Les petits fichiers sont lus par un tampon ordinaire, moins coûteux à mettre en place.
+ */
+final class FileHasher {
+
+    /** Taille à partir de laquelle le fichier est projeté en mémoire. */
+    static final long MMAP_THRESHOLD = 16L * 1024 * 1024;
+    /** Taille d'une fenêtre projetée : borne l'espace d'adressage occupé à un instant donné. */
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileHasher() {
+    }
+
+    /**
+     * @return l'empreinte en hexadécimal minuscule
+     */
+    static String sha256(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MMAP_THRESHOLD) {
+                for (long position = 0; position < size; position += MAP_WINDOW) {
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(MAP_WINDOW, size - position));
+                    digest.update(window);
+                }
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (channel.read(buffer) > 0) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Algorithme obligatoire sur toute JVM
+            throw new IllegalStateException(e);
+        }
+    }
+}
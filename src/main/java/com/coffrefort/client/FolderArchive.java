@@ -0,0 +1,275 @@
+package com.coffrefort.client;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.coffrefort.client.model.FileEntry;
+import com.coffrefort.client.model.NodeItem;
+
+import okio.Buffer;
+
+/**
+ * Archive ZIP d'un dossier distant, écrite au fil des téléchargements.
+ *
+ * Les entrées suivent un ordre fixe (dossier, ses fichiers par nom, puis ses sous-dossiers par nom),
+ * indépendant de l'ordre d'arrivée des téléchargements. Le fichier en tête passe directement du réseau
+ * à l'archive ; les suivants sont téléchargés en parallèle dans une fenêtre en mémoire bornée, pour
+ * qu'un fichier lent n'arrête pas les autres. Les gros fichiers ne sont jamais mis en mémoire :
+ * ils attendent leur tour. Rien du dossier n'est copié sur le disque en dehors de l'archive.
+ */
+final class FolderArchive {
+
+    /** Téléchargements simultanés pour une archive. */
+    static final int MAX_PARALLEL_FETCHES = 4;
+    /** Mémoire réservée aux fichiers téléchargés en avance, en attente de leur tour. */
+    static final long WINDOW_BYTES = 32L * 1024 * 1024;
+    /** Au-delà, un fichier n'est pas téléchargé en avance mais écrit directement à son tour. */
+    static final long MAX_BUFFERED_FILE = 8L * 1024 * 1024;
+    /** Nombre maximal d'entrées d'avance, même très petites. */
+    private static final int MAX_AHEAD = 256;
+
+    /**
+     * Téléchargement du contenu d'un fichier dans {@code out}, sans le fermer.
+     */
+    @FunctionalInterface
+    interface Fetcher {
+        CompletableFuture<Void> fetch(FileEntry file, OutputStream out);
+    }
+
+    /**
+     * Entrée de l'archive : un fichier, ou un dossier ({@code file} null, chemin terminé par /).
+     */
+    static final class Entry {
+        final String path;
+        final FileEntry file;
+
+        Entry(String path, FileEntry file) {
+            this.path = path;
+            this.file = file;
+        }
+    }
+
+    private final List<Entry> entries;
+    private final Fetcher fetcher;
+    private final BooleanSupplier cancelled;
+    /** Fichiers téléchargés en avance, par index d'entrée */
+    private final Map<Integer, CompletableFuture<Buffer>> prefetched = new HashMap<>();
+    private final List<CompletableFuture<?>> inFlight = new ArrayList<>();
+    private int nextPrefetch;
+    private long bufferedBytes;
+
+    FolderArchive(NodeItem folder, Fetcher fetcher, BooleanSupplier cancelled) {
+        this.entries = entries(folder);
+        this.fetcher = fetcher;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @return les entrées du dossier et de ses sous-dossiers, dans l'ordre de l'archive
+     */
+    static List<Entry> entries(NodeItem folder) {
+        List<Entry> entries = new ArrayList<>();
+        addFolder(entries, folder, safeName(folder.getName(), "dossier") + "/");
+        return entries;
+    }
+
+    private static void addFolder(List<Entry> entries, NodeItem folder, String path) {
+        entries.add(new Entry(path, null));
+        Set<String> used = new HashSet<>();
+
+        List<FileEntry> files = new ArrayList<>(folder.getFiles());
+        files.sort(Comparator.comparing(FileEntry::getName)
+            .thenComparing(file -> file.getId() != null ? file.getId() : 0));
+        for (FileEntry file : files) {
+            entries.add(new Entry(path + uniqueName(used, safeName(file.getName(), "fichier")), file));
+        }
+
+        List<NodeItem> children = new ArrayList<>(folder.getChildren());
+        children.sort(Comparator.comparing(NodeItem::getName)
+            .thenComparing(child -> child.getId() != null ? child.getId() : 0));
+        for (NodeItem child : children) {
+            addFolder(entries, child, path + uniqueName(used, safeName(child.getName(), "dossier")) + "/");
+        }
+    }
+
+    /**
+     * Nom utilisable dans une archive : ni séparateur ni composant spécial qui sortirait du dossier.
+     */
+    private static String safeName(String name, String fallback) {
+        String safe = name == null ? "" : name.replace('/', '_').replace('\\', '_').trim();
+        if (safe.isEmpty() || safe.equals(".") || safe.equals("..")) {
+            return fallback;
+        }
+        return safe;
+    }
+
+    /**
+     * Deux éléments de même nom dans un dossier : le second devient "nom (2).ext".
+     */
+    private static String uniqueName(Set<String> used, String name) {
+        if (used.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int i = 2; ; i++) {
+            String candidate = base + " (" + i + ")" + extension;
+            if (used.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Écrit l'archive dans {@code destination.part}, renommé en {@code destination} une fois complet.
+     * Bloque jusqu'à la fin ; en cas d'échec ou d'annulation, l'archive partielle est supprimée.
+     */
+    void write(Path destination) throws IOException, InterruptedException {
+        Path temp = destination.resolveSibling(destination.getFileName() + ".part");
+        boolean complete = false;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 256 * 1024))) {
+            // Beaucoup de fichiers sont déjà compressés : la compression ne doit pas ralentir l'archive
+            zip.setLevel(Deflater.BEST_SPEED);
+            OutputStream entryStream = new FilterOutputStream(zip) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    zip.write(b, off, len);
+                }
+
+                @Override
+                public void close() {
+                    // L'entrée est fermée par l'archive
+                }
+            };
+            for (int index = 0; index < entries.size(); index++) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException("Téléchargement du dossier annulé");
+                }
+                fill(index);
+                Entry entry = entries.get(index);
+                ZipEntry zipEntry = new ZipEntry(entry.path);
+                if (entry.file != null) {
+                    zipEntry.setTime(entry.file.getUpdatedAt().toEpochMilli());
+                }
+                zip.putNextEntry(zipEntry);
+                if (entry.file != null && entry.file.getSize() != 0) {
+                    CompletableFuture<Buffer> buffered = prefetched.remove(index);
+                    if (buffered != null) {
+                        Buffer content = await(index, buffered);
+                        bufferedBytes -= entry.file.getSize();
+                        content.writeTo(entryStream);
+                    } else {
+                        // Trop gros pour la fenêtre : directement du réseau à l'archive
+                        await(index, fetcher.fetch(entry.file, entryStream));
+                    }
+                }
+                zip.closeEntry();
+            }
+            zip.finish();
+            zip.flush();
+            channel.force(false);
+            complete = true;
+        } finally {
+            if (!complete) {
+                inFlight.forEach(call -> call.cancel(true));
+                Files.deleteIfExists(temp);
+            }
+        }
+        try {
+            Files.move(temp, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Lance les téléchargements en avance permis par la fenêtre, à partir de l'entrée courante.
+     */
+    private void fill(int current) {
+        inFlight.removeIf(CompletableFuture::isDone);
+        nextPrefetch = Math.max(nextPrefetch, current + 1);
+        while (nextPrefetch < entries.size() && nextPrefetch - current <= MAX_AHEAD
+                && inFlight.size() < MAX_PARALLEL_FETCHES) {
+            FileEntry file = entries.get(nextPrefetch).file;
+            if (file != null && file.getSize() > 0 && file.getSize() <= MAX_BUFFERED_FILE) {
+                long size = file.getSize();
+                if (bufferedBytes + size > WINDOW_BYTES) {
+                    break;
+                }
+                Buffer buffer = new Buffer();
+                CompletableFuture<Buffer> call = fetcher.fetch(file, buffer.outputStream()).thenApply(ignored -> buffer);
+                prefetched.put(nextPrefetch, call);
+                inFlight.add(call);
+                bufferedBytes += size;
+            }
+            nextPrefetch++;
+        }
+    }
+
+    /**
+     * Attend le fichier de tête ; chaque téléchargement en avance qui se termine entre-temps
+     * libère sa place pour le suivant.
+     */
+    private <T> T await(int current, CompletableFuture<T> head) throws IOException, InterruptedException {
+        inFlight.add(head);
+        try {
+            while (!head.isDone()) {
+                List<CompletableFuture<?>> pending = new ArrayList<>(inFlight);
+                try {
+                    CompletableFuture.anyOf(pending.toArray(new CompletableFuture<?>[0])).get();
+                } catch (ExecutionException | CancellationException e) {
+                    // L'échec d'un téléchargement en avance est signalé à son tour
+                }
+                fill(current);
+            }
+            return head.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof CancellationException) {
+                throw (CancellationException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            inFlight.remove(head);
+        }
+    }
+
+    int getFileCount() {
+        int count = 0;
+        for (Entry entry : entries) {
+            if (entry.file != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,265 @@
+package com.coffrefort.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import com.coffrefort.client.ApiClient.Change;
+import com.coffrefort.client.ApiClient.ChangeSet;
+import com.coffrefort.client.ApiClient.FileDto;
+import com.coffrefort.client.ApiClient.FolderDto;
+import com.coffrefort.client.utils.Timestamps;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Décodeur en flux des listes de dossiers et de fichiers.
+ *
+ * Les réponses sont lues directement depuis l'{@link InputStream} HTTP avec un
+ * {@link JsonParser} : chaque élément est transformé en DTO puis transmis au
+ * consommateur, sans passer par une String ni un arbre {@code JsonNode}.
+ *
+ * Formats acceptés :
+ * - tableau nu : {@code [ {...}, {...} ]}
+ * - enveloppe : {@code { "files": [...] }}, {@code { "folders": [...] }} ou {@code { "data": [...] }}
+ * - page d'une liste paginée : enveloppe accompagnée de {@code "next_cursor": "..."}
+ */
+class JsonListingReader {
+
+    private final JsonFactory jsonFactory;
+
+    JsonListingReader(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Lit une liste (ou une page) de dossiers et transmet chaque dossier au consommateur.
+     * @return le curseur de la page suivante, ou null s'il n'y en a pas
+     */
+    String readFolders(InputStream in, Consumer<FolderDto> consumer) throws IOException {
+        return readListing(in, "folders", parser -> consumer.accept(readFolder(parser)));
+    }
+
+    /**
+     * Lit une liste (ou une page) de fichiers et transmet chaque fichier au consommateur.
+     * @return le curseur de la page suivante, ou null s'il n'y en a pas
+     */
+    String readFiles(InputStream in, Consumer<FileDto> consumer) throws IOException {
+        return readListing(in, "files", parser -> consumer.accept(readFile(parser)));
+    }
+
+    /**
+     * Lit une page du flux de changements :
+     * {@code { "changes": [ {"op": "upsert", "type": "file", "file": {...}}, {"op": "delete", "type": "folder", "id": 4} ],
+     *          "next_token": "...", "has_more": false }}
+     */
+    ChangeSet readChanges(InputStream in) throws IOException {
+        ChangeSet changeSet = new ChangeSet();
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Réponse invalide: objet attendu pour les changements");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("changes".equals(field) && value == JsonToken.START_ARRAY) {
+                    readElements(parser, p -> changeSet.changes.add(readChange(p)));
+                } else if ("next_token".equals(field)) {
+                    changeSet.nextToken = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                } else if ("has_more".equals(field)) {
+                    changeSet.hasMore = parser.getValueAsBoolean();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return changeSet;
+    }
+
+    private Change readChange(JsonParser parser) throws IOException {
+        Change change = new Change();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "op":
+                    change.op = parser.getValueAsString();
+                    break;
+                case "type":
+                    change.type = parser.getValueAsString();
+                    break;
+                case "id":
+                    change.id = readInteger(parser, value);
+                    break;
+                case "folder":
+                    if (value == JsonToken.START_OBJECT) {
+                        change.folder = readFolder(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "file":
+                    if (value == JsonToken.START_OBJECT) {
+                        change.file = readFile(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return change;
+    }
+
+    /**
+     * Parcourt le tableau d'éléments (nu ou dans une enveloppe) et relève
+     * le champ {@code next_cursor} de l'enveloppe, qu'il soit avant ou après le tableau.
+     */
+    private String readListing(InputStream in, String collectionKey, ElementReader elementReader) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                readElements(parser, elementReader);
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            String nextCursor = null;
+            boolean elementsRead = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!elementsRead && (collectionKey.equals(field) || "data".equals(field))
+                        && value == JsonToken.START_ARRAY) {
+                    readElements(parser, elementReader);
+                    elementsRead = true;
+                } else if ("next_cursor".equals(field)) {
+                    nextCursor = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return nextCursor == null || nextCursor.isEmpty() ? null : nextCursor;
+        }
+    }
+
+    private void readElements(JsonParser parser, ElementReader elementReader) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.START_OBJECT) {
+                elementReader.read(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private FolderDto readFolder(JsonParser parser) throws IOException {
+        FolderDto folder = new FolderDto();
+        folder.name = "Sans nom";
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value.isStructStart()) {
+                // Aucun champ attendu n'est un objet ou un tableau
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    folder.id = readInteger(parser, value);
+                    break;
+                case "name":
+                    folder.name = parser.getValueAsString("Sans nom");
+                    break;
+                case "parent_id":
+                    folder.parentId = readInteger(parser, value);
+                    break;
+                default:
+                    // Champ non utilisé par le client
+                    break;
+            }
+        }
+        return folder;
+    }
+
+    private FileDto readFile(JsonParser parser) throws IOException {
+        FileDto file = new FileDto();
+        String filename = null;
+        String originalName = null;
+        String uploadedAt = null;
+        String createdAt = null;
+        Integer currentVersion = null;
+        Integer version = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value.isStructStart()) {
+                // Aucun champ attendu n'est un objet ou un tableau
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    file.id = readInteger(parser, value);
+                    break;
+                case "filename":
+                    filename = parser.getValueAsString();
+                    break;
+                case "original_name":
+                    originalName = parser.getValueAsString();
+                    break;
+                case "size":
+                    file.size = parser.getValueAsLong();
+                    break;
+                case "folder_id":
+                    file.folderId = readInteger(parser, value);
+                    break;
+                case "uploaded_at":
+                    uploadedAt = parser.getValueAsString();
+                    break;
+                case "created_at":
+                    createdAt = parser.getValueAsString();
+                    break;
+                case "current_version":
+                    currentVersion = parser.getValueAsInt();
+                    break;
+                case "version":
+                    version = parser.getValueAsInt();
+                    break;
+                default:
+                    // Champ non utilisé par le client
+                    break;
+            }
+        }
+
+        file.filename = filename != null ? filename : originalName != null ? originalName : "Sans nom";
+
+        // uploaded_at est prioritaire sur created_at ; date actuelle si absente ou invalide
+        Instant timestamp = Timestamps.parseIsoInstant(uploadedAt != null ? uploadedAt : createdAt);
+        file.uploadedAt = timestamp != null ? timestamp : Instant.now();
+
+        file.currentVersion = currentVersion != null ? currentVersion : version != null ? version : 1;
+        return file;
+    }
+
+    @FunctionalInterface
+    private interface ElementReader {
+        /** Lit un élément ; le parser est positionné sur son START_OBJECT. */
+        void read(JsonParser parser) throws IOException;
+    }
+
+    private Integer readInteger(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return parser.getValueAsInt();
+    }
+}
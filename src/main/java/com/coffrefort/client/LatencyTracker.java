@@ -0,0 +1,40 @@
+package com.coffrefort.client;
+
+import java.util.Arrays;
+
+/**
+ * Garde les dernières durées de réponse des GET pour en calculer un percentile.
+ * Sert à déclencher une requête doublée ("hedged request") lorsqu'une réponse
+ * tarde plus que la quasi-totalité des précédentes.
+ */
+class LatencyTracker {
+
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * @param percentile entre 0 et 1 (ex. 0.95)
+     * @param minSamples nombre minimal de mesures pour que la valeur soit significative
+     * @return la durée correspondante en ms, ou -1 s'il n'y a pas assez de mesures
+     */
+    synchronized long percentile(double percentile, int minSamples) {
+        if (count < minSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
@@ -1,6 +1,7 @@
 package com.coffrefort.client;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -98,7 +99,16 @@ public class MainView {
 
     private void loadData() {
         // Arbre
-        List<NodeItem> roots = apiClient.listRoot();
+        List<NodeItem> roots;
+        try {
+            roots = apiClient.listRoot();
+        } catch (IOException e) {
+            Alert error = new Alert(Alert.AlertType.ERROR);
+            error.setHeaderText("Impossible de charger vos dossiers");
+            error.setContentText(e.getMessage());
+            error.showAndWait();
+            return;
+        }
         TreeItem<NodeItem> hiddenRoot = new TreeItem<>(NodeItem.folder("root"));
         for (NodeItem n : roots) {
             hiddenRoot.getChildren().add(buildTree(n));
@@ -0,0 +1,164 @@
+package com.coffrefort.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.coffrefort.client.model.PartialDownload;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Téléchargements interrompus : la description de chacun est écrite à côté de son fichier
+ * {@code .part} ; un petit fichier dans {@code ~/.coffrefort/downloads} pointe vers elle
+ * pour les retrouver au redémarrage.
+ */
+public class PartialDownloadStore {
+
+    private final File directory;
+    private final ObjectMapper jsonMapper;
+
+    PartialDownloadStore(File directory, ObjectMapper jsonMapper) {
+        this.directory = directory;
+        this.jsonMapper = jsonMapper;
+    }
+
+    public synchronized void save(PartialDownload download) throws IOException {
+        ObjectNode json = jsonMapper.createObjectNode();
+        json.put("file_id", download.getFileId());
+        json.put("file_name", download.getFileName());
+        if (download.getRequestedVersion() != null) {
+            json.put("requested_version", download.getRequestedVersion());
+        }
+        json.put("version", download.getVersion());
+        json.put("size", download.getSize());
+        if (download.getEtag() != null) {
+            json.put("etag", download.getEtag());
+        }
+        if (download.getChecksum() != null) {
+            json.put("checksum", download.getChecksum());
+        }
+        json.put("destination", download.getDestinationPath());
+        if (!download.getSegments().isEmpty()) {
+            ArrayNode segments = json.putArray("segments");
+            for (PartialDownload.Segment segment : download.getSegments()) {
+                segments.addArray().add(segment.getStart()).add(segment.getEnd()).add(segment.getWritten());
+            }
+        }
+        writeAtomically(download.getSidecarFile().toPath(), jsonMapper.writeValueAsBytes(json));
+
+        Files.createDirectories(directory.toPath());
+        writeAtomically(pointerFor(download.getDestination()),
+            download.getDestinationPath().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return le téléchargement interrompu vers cette destination, ou null
+     */
+    public synchronized PartialDownload find(File destination) {
+        File sidecar = new File(destination.getAbsolutePath() + ".part.json");
+        if (!sidecar.isFile()) {
+            return null;
+        }
+        try {
+            return read(jsonMapper.readTree(sidecar));
+        } catch (IOException e) {
+            System.err.println("Description de téléchargement illisible ignorée: " + sidecar + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * Supprime le contenu partiel, sa description et le pointeur.
+     */
+    public synchronized void discard(PartialDownload download) {
+        forget(download);
+        try {
+            Files.deleteIfExists(download.getPartFile().toPath());
+        } catch (IOException e) {
+            System.err.println("Impossible de supprimer " + download.getPartFile() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Supprime la description et le pointeur (une fois le fichier .part renommé en destination).
+     */
+    public synchronized void forget(PartialDownload download) {
+        try {
+            Files.deleteIfExists(download.getSidecarFile().toPath());
+            Files.deleteIfExists(pointerFor(download.getDestination()));
+        } catch (IOException e) {
+            System.err.println("Impossible de supprimer la description de " + download.getPartFile() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return les téléchargements interrompus ; les pointeurs dont le fichier .part a disparu sont effacés
+     */
+    public synchronized List<PartialDownload> loadAll() {
+        List<PartialDownload> downloads = new ArrayList<>();
+        File[] pointers = directory.listFiles((dir, name) -> name.endsWith(".path"));
+        if (pointers == null) {
+            return downloads;
+        }
+        for (File pointer : pointers) {
+            try {
+                File destination = new File(Files.readString(pointer.toPath(), StandardCharsets.UTF_8).trim());
+                PartialDownload download = find(destination);
+                if (download != null && download.getPartFile().isFile()) {
+                    downloads.add(download);
+                } else {
+                    Files.deleteIfExists(pointer.toPath());
+                }
+            } catch (IOException e) {
+                System.err.println("Pointeur de téléchargement illisible ignoré: " + pointer.getName() + " (" + e.getMessage() + ")");
+            }
+        }
+        return downloads;
+    }
+
+    private PartialDownload read(JsonNode json) throws IOException {
+        if (!json.hasNonNull("file_id") || !json.hasNonNull("destination")) {
+            throw new IOException("champs manquants");
+        }
+        PartialDownload download = new PartialDownload();
+        download.setFileId(json.get("file_id").asInt());
+        download.setFileName(json.path("file_name").asText(""));
+        download.setRequestedVersion(json.hasNonNull("requested_version") ? json.get("requested_version").asInt() : null);
+        download.setVersion(json.path("version").asInt());
+        download.setSize(json.path("size").asLong(-1));
+        download.setEtag(json.hasNonNull("etag") ? json.get("etag").asText() : null);
+        download.setChecksum(json.hasNonNull("checksum") ? json.get("checksum").asText() : null);
+        download.setDestinationPath(json.get("destination").asText());
+        for (JsonNode segment : json.path("segments")) {
+            download.getSegments().add(new PartialDownload.Segment(
+                segment.get(0).asLong(), segment.get(1).asLong(), segment.get(2).asLong()));
+        }
+        return download;
+    }
+
+    private Path pointerFor(File destination) {
+        // Nom stable et sûr dérivé du chemin de destination
+        UUID key = UUID.nameUUIDFromBytes(destination.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        return new File(directory, key + ".path").toPath();
+    }
+
+    private static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, content);
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
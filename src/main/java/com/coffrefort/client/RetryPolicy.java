@@ -0,0 +1,79 @@
+package com.coffrefort.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Règles de nouvel essai des appels HTTP.
+ *
+ * Seules les requêtes sans effet en cas de répétition sont rejouées :
+ * GET, HEAD, PUT, DELETE, et les POST porteurs d'un en-tête {@code Idempotency-Key}
+ * (le serveur renvoie alors le résultat du premier traitement au lieu de créer un doublon).
+ *
+ * Le délai entre deux essais suit un backoff exponentiel avec "full jitter" :
+ * un tirage uniforme entre 0 et {@code min(maxDelay, baseDelay * 2^(essai-1))},
+ * pour éviter que tous les clients réessaient au même instant.
+ */
+class RetryPolicy {
+
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return true si la requête peut être envoyée plusieurs fois sans risque de doublon
+     */
+    boolean isRetryable(Request request) {
+        switch (request.method()) {
+            case "GET":
+            case "HEAD":
+            case "PUT":
+            case "DELETE":
+                return true;
+            default:
+                return request.header(IDEMPOTENCY_KEY_HEADER) != null;
+        }
+    }
+
+    /**
+     * Codes signalant un échec temporaire côté serveur ou réseau.
+     */
+    boolean isRetryableStatus(int code) {
+        return code == 408 || code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * Délai avant l'essai suivant.
+     * @param attempt numéro de l'essai qui vient d'échouer (à partir de 1)
+     * @param response réponse en erreur, ou null en cas d'erreur réseau ; son en-tête
+     *                 {@code Retry-After} (en secondes) est respecté dans la limite de {@code maxDelay}
+     */
+    long delayMillis(int attempt, Response response) {
+        if (response != null) {
+            String retryAfter = response.header("Retry-After");
+            if (retryAfter != null) {
+                try {
+                    return Math.min(maxDelayMs, Math.max(0, Long.parseLong(retryAfter.trim()) * 1000));
+                } catch (NumberFormatException ignored) {
+                    // Date HTTP : on retombe sur le backoff
+                }
+            }
+        }
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
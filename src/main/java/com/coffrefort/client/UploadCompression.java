@@ -0,0 +1,177 @@
+package com.coffrefort.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.GzipSink;
+import okio.Okio;
+import okio.Sink;
+
+/**
+ * Compression des uploads à la volée ({@code Content-Encoding: gzip}).
+ *
+ * La décision se prend par fichier : les formats déjà compressés (images, vidéo, archives,
+ * documents Office zippés...) sont envoyés tels quels ; pour les autres, les premiers blocs
+ * sont compressés à titre d'essai et la compression n'est retenue que si elle fait gagner
+ * suffisamment de place. Texte, CSV, journaux et XML se compressent typiquement à 10-30 %.
+ */
+final class UploadCompression {
+
+    /** Taille lue en début de fichier pour estimer le gain. */
+    private static final int SAMPLE_SIZE = 256 * 1024;
+    /** En dessous, le gain ne compense pas l'en-tête gzip ni le coût du démarrage. */
+    private static final long MIN_FILE_SIZE = 4 * 1024;
+    /** Ratio maximal (taille compressée / taille brute) de l'échantillon pour compresser. */
+    private static final double MAX_SAMPLE_RATIO = 0.85;
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+        "jpg", "jpeg", "png", "gif", "webp", "heic", "avif",
+        "mp3", "aac", "ogg", "flac", "m4a",
+        "mp4", "mkv", "avi", "mov", "webm",
+        "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst",
+        "docx", "xlsx", "pptx", "odt", "ods", "odp", "jar", "apk");
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private UploadCompression() {
+    }
+
+    /**
+     * Mesures d'un transfert compressé, cumulées sur toutes ses requêtes (blocs, nouveaux essais).
+     */
+    static final class Stats {
+        private final String fileName;
+        private final double sampleRatio;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong rawBytes = new AtomicLong();
+        private final AtomicLong wireBytes = new AtomicLong();
+        private final AtomicLong cpuNanos = new AtomicLong();
+
+        Stats(String fileName, double sampleRatio) {
+            this.fileName = fileName;
+            this.sampleRatio = sampleRatio;
+        }
+
+        /**
+         * @return une ligne de bilan : volume gagné, temps CPU de compression et durée totale
+         */
+        String describe() {
+            long raw = rawBytes.get();
+            long wire = wireBytes.get();
+            return String.format(Locale.FRANCE,
+                "Compression de %s : %d Ko → %d Ko (%.0f %%, échantillon %.0f %%), %d ms CPU, transfert en %d ms",
+                fileName, raw / 1024, wire / 1024, raw > 0 ? 100.0 * wire / raw : 0, 100 * sampleRatio,
+                cpuNanos.get() / 1_000_000, (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    /**
+     * @return les mesures à remplir si le fichier mérite d'être compressé, sinon null
+     */
+    static Stats evaluate(File file) {
+        if (file.length() < MIN_FILE_SIZE) {
+            return null;
+        }
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+            return null;
+        }
+
+        double ratio;
+        try {
+            ratio = sampleRatio(file);
+        } catch (IOException e) {
+            return null; // L'upload signalera l'erreur de lecture
+        }
+        if (ratio > MAX_SAMPLE_RATIO) {
+            System.out.println("Compression inutile pour " + name + " (échantillon à " + Math.round(100 * ratio) + " %)");
+            return null;
+        }
+        return new Stats(name, ratio);
+    }
+
+    private static double sampleRatio(File file) throws IOException {
+        byte[] sample = new byte[SAMPLE_SIZE];
+        int length;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            length = in.readNBytes(sample, 0, sample.length);
+        }
+        if (length == 0) {
+            return 1;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(sample, 0, length);
+            deflater.finish();
+            byte[] output = new byte[SAMPLE_SIZE];
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(output);
+            }
+            return (double) compressed / length;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Corps compressé en gzip pendant l'écriture. La taille finale n'est pas connue d'avance :
+     * la requête part en {@code Transfer-Encoding: chunked}.
+     */
+    static final class GzipRequestBody extends RequestBody {
+        private final RequestBody delegate;
+        private final Stats stats;
+
+        GzipRequestBody(RequestBody delegate, Stats stats) {
+            this.delegate = delegate;
+            this.stats = stats;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            Sink wire = new ForwardingSink(sink) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    super.write(source, byteCount);
+                    stats.wireBytes.addAndGet(byteCount);
+                }
+            };
+            Sink raw = new ForwardingSink(new GzipSink(wire)) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    stats.rawBytes.addAndGet(byteCount);
+                    long cpuBefore = THREADS.getCurrentThreadCpuTime();
+                    super.write(source, byteCount);
+                    stats.cpuNanos.addAndGet(THREADS.getCurrentThreadCpuTime() - cpuBefore);
+                }
+            };
+            try (BufferedSink gzip = Okio.buffer(raw)) {
+                delegate.writeTo(gzip);
+            }
+        }
+    }
+}
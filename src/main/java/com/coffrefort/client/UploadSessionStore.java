@@ -0,0 +1,126 @@
+package com.coffrefort.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.coffrefort.client.model.UploadSession;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Sessions d'upload enregistrées sur disque, un fichier JSON par session
+ * (par défaut dans {@code ~/.coffrefort/uploads}).
+ *
+ * Chaque écriture passe par un fichier temporaire renommé : une session n'est
+ * jamais à moitié écrite, même si l'application s'arrête pendant la sauvegarde.
+ */
+public class UploadSessionStore {
+
+    private final File directory;
+    private final ObjectMapper jsonMapper;
+
+    UploadSessionStore(File directory, ObjectMapper jsonMapper) {
+        this.directory = directory;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Enregistre l'état courant de la session (blocs acceptés compris).
+     */
+    public synchronized void save(UploadSession session) throws IOException {
+        Files.createDirectories(directory.toPath());
+        ObjectNode json = jsonMapper.createObjectNode();
+        json.put("upload_id", session.getUploadId());
+        json.put("file_path", session.getFilePath());
+        json.put("file_size", session.getFileSize());
+        json.put("last_modified", session.getLastModified());
+        if (session.getFolderId() != null) {
+            json.put("folder_id", session.getFolderId());
+        }
+        json.put("chunk_size", session.getChunkSize());
+        ArrayNode chunks = json.putArray("acknowledged_chunks");
+        for (int index : session.getAcknowledgedChunks()) {
+            chunks.add(index);
+        }
+
+        Path target = fileFor(session.getUploadId());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        jsonMapper.writeValue(temp.toFile(), json);
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public synchronized void delete(UploadSession session) {
+        try {
+            Files.deleteIfExists(fileFor(session.getUploadId()));
+        } catch (IOException e) {
+            System.err.println("Impossible de supprimer la session d'upload " + session.getUploadId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return toutes les sessions enregistrées ; les fichiers illisibles sont ignorés
+     */
+    public synchronized List<UploadSession> loadAll() {
+        List<UploadSession> sessions = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            return sessions;
+        }
+        for (File file : files) {
+            try {
+                sessions.add(read(jsonMapper.readTree(file)));
+            } catch (IOException e) {
+                System.err.println("Session d'upload illisible ignorée: " + file.getName() + " (" + e.getMessage() + ")");
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * @return la session enregistrée pour ce fichier et ce dossier, si le fichier n'a pas changé depuis
+     */
+    public synchronized UploadSession find(File file, Integer folderId) {
+        for (UploadSession session : loadAll()) {
+            if (session.matches(file) && java.util.Objects.equals(session.getFolderId(), folderId)) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    private UploadSession read(JsonNode json) throws IOException {
+        if (!json.hasNonNull("upload_id") || !json.hasNonNull("file_path")) {
+            throw new IOException("champs manquants");
+        }
+        UploadSession session = new UploadSession();
+        session.setUploadId(json.get("upload_id").asText());
+        session.setFilePath(json.get("file_path").asText());
+        session.setFileSize(json.path("file_size").asLong());
+        session.setLastModified(json.path("last_modified").asLong());
+        session.setFolderId(json.hasNonNull("folder_id") ? json.get("folder_id").asInt() : null);
+        session.setChunkSize(json.path("chunk_size").asInt());
+        List<Integer> chunks = new ArrayList<>();
+        for (JsonNode index : json.path("acknowledged_chunks")) {
+            chunks.add(index.asInt());
+        }
+        session.setAcknowledgedChunks(chunks);
+        return session;
+    }
+
+    private Path fileFor(String uploadId) {
+        // L'identifiant vient du serveur : on ne garde que des caractères sûrs pour un nom de fichier
+        return new File(directory, uploadId.replaceAll("[^A-Za-z0-9._-]", "_") + ".json").toPath();
+    }
+}
@@ -0,0 +1,128 @@
+package com.coffrefort.client.controllers;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import com.coffrefort.client.ApiClient;
+import com.coffrefort.client.model.FileEntry;
+import com.coffrefort.client.model.NodeItem;
+import com.coffrefort.client.model.PartialDownload;
+import com.coffrefort.client.model.TransferItem;
+
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
+import javafx.stage.Window;
+
+/**
+ * Téléchargements : mis dans la file des transferts, avec les uploads, et suivis
+ * dans la fenêtre "Transferts". Un téléchargement interrompu reprend là où il s'était arrêté.
+ */
+public class DownloadController {
+
+    private final ApiClient apiClient;
+    private final TransferQueue queue;
+    private final TransferController transferController;
+
+    public DownloadController(ApiClient apiClient, TransferQueue queue, TransferController transferController) {
+        this.apiClient = apiClient;
+        this.queue = queue;
+        this.transferController = transferController;
+        queue.addFinishedListener(this::downloadFinished);
+    }
+
+    /**
+     * @param version version à télécharger, null pour la version actuelle
+     * @param size taille attendue, pour la progression
+     */
+    public void download(FileEntry file, Integer version, long size, File destination, Window owner) {
+        if (file.getId() == null) {
+            System.err.println("Téléchargement impossible, fichier sans ID: " + file.getName());
+            return;
+        }
+        String name = version != null ? file.getName() + " (v" + version + ")" : file.getName();
+        System.out.println("Téléchargement de " + name + " vers " + destination);
+        queue.add(TransferItem.Direction.DOWNLOAD, name, size, TransferItem.Priority.NORMAL,
+            onBytes -> apiClient.downloadFileAsync(file, version, destination, onBytes));
+        transferController.show(owner);
+    }
+
+    /**
+     * Télécharge un dossier et tout son contenu dans une archive ZIP.
+     */
+    public void downloadFolder(NodeItem folder, File destination, Window owner) {
+        String name = destination.getName();
+        System.out.println("Téléchargement du dossier " + folder.getName() + " vers " + destination);
+        queue.add(TransferItem.Direction.DOWNLOAD, name, folderSize(folder), TransferItem.Priority.NORMAL,
+            onBytes -> apiClient.downloadFolderAsync(folder, destination, onBytes));
+        transferController.show(owner);
+    }
+
+    private static long folderSize(NodeItem folder) {
+        long size = 0;
+        for (FileEntry file : folder.getFiles()) {
+            size += Math.max(0, file.getSize());
+        }
+        for (NodeItem child : folder.getChildren()) {
+            size += folderSize(child);
+        }
+        return size;
+    }
+
+    /**
+     * Propose de reprendre les téléchargements interrompus (coupure réseau, fermeture de l'application).
+     */
+    public void resumePendingDownloads(Window owner) {
+        List<PartialDownload> pending = apiClient.getPendingDownloads();
+        if (pending.isEmpty()) return;
+
+        StringBuilder details = new StringBuilder();
+        for (PartialDownload partial : pending) {
+            int percentage = partial.getSize() > 0
+                ? (int) (100 * partial.getReceivedBytes() / partial.getSize()) : 0;
+            details.append("- ").append(partial.getFileName()).append(" (").append(percentage).append("%)\n");
+        }
+
+        ButtonType resume = new ButtonType("Reprendre");
+        ButtonType discard = new ButtonType("Abandonner");
+        ButtonType later = new ButtonType("Plus tard", ButtonBar.ButtonData.CANCEL_CLOSE);
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "", resume, discard, later);
+        confirm.setTitle("Téléchargements interrompus");
+        confirm.setHeaderText(pending.size() + " téléchargement(s) n'ont pas pu se terminer");
+        confirm.setContentText(details + "\nLa partie déjà reçue ne sera pas retéléchargée, sauf si le fichier a changé depuis.");
+
+        Optional<ButtonType> choice = confirm.showAndWait();
+        if (choice.isEmpty() || choice.get() == later) return;
+
+        if (choice.get() == discard) {
+            for (PartialDownload partial : pending) {
+                apiClient.discardDownload(partial);
+            }
+            return;
+        }
+        for (PartialDownload partial : pending) {
+            String name = partial.getRequestedVersion() != null
+                ? partial.getFileName() + " (v" + partial.getRequestedVersion() + ")" : partial.getFileName();
+            queue.add(TransferItem.Direction.DOWNLOAD, name, partial.getSize(), TransferItem.Priority.NORMAL,
+                onBytes -> apiClient.resumeDownloadAsync(partial, onBytes));
+        }
+        transferController.show(owner);
+    }
+
+    private void downloadFinished(TransferItem item) {
+        if (item.getDirection() != TransferItem.Direction.DOWNLOAD) {
+            return;
+        }
+        if (item.getState() == TransferItem.State.COMPLETED) {
+            System.out.println("Téléchargement terminé : " + item.getName());
+        } else if (item.getState() == TransferItem.State.FAILED) {
+            Alert error = new Alert(Alert.AlertType.ERROR);
+            error.setTitle("Erreur de téléchargement");
+            error.setHeaderText("Impossible de télécharger " + item.getName());
+            error.setContentText(item.getErrorMessage()
+                + "\n\nLe téléchargement peut être relancé depuis la fenêtre des transferts.");
+            error.show();
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.coffrefort.client.controllers;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import com.coffrefort.client.model.FileEntry;
 import com.coffrefort.client.model.NodeItem;
 
+import javafx.scene.Node;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TreeCell;
 import javafx.scene.control.TreeView;
+import javafx.scene.input.DragEvent;
 import javafx.scene.input.Dragboard;
 import javafx.scene.input.TransferMode;
 
@@ -17,13 +24,21 @@ public class DragDropController {
     private final TreeView<NodeItem> treeView;
     private final Runnable refreshCallback;
     private final FileOperationController fileOpController;
+    private final UploadController uploadController;
+    private final Supplier<NodeItem> currentFolder;
 
+    /**
+     * @param currentFolder dossier affiché dans la table, destination des fichiers déposés dessus
+     */
     public DragDropController(TableView<FileEntry> table, TreeView<NodeItem> treeView, 
-                             Runnable refreshCallback, FileOperationController fileOpController) {
+                             Runnable refreshCallback, FileOperationController fileOpController,
+                             UploadController uploadController, Supplier<NodeItem> currentFolder) {
         this.table = table;
         this.treeView = treeView;
         this.refreshCallback = refreshCallback;
         this.fileOpController = fileOpController;
+        this.uploadController = uploadController;
+        this.currentFolder = currentFolder;
     }
 
     public void setupDragAndDrop() {
@@ -61,7 +76,12 @@ public class DragDropController {
         if (treeView == null) return;
 
         treeView.setOnDragOver(event -> {
-            if (event.getGestureSource() != treeView && 
+            if (isExternalFileDrag(event)) {
+                // Seul un dossier existant côté serveur peut recevoir les fichiers
+                if (isUploadTarget(folderUnderCursor(event))) {
+                    event.acceptTransferModes(TransferMode.COPY);
+                }
+            } else if (event.getGestureSource() != treeView && 
                 event.getDragboard().hasString()) {
                 event.acceptTransferModes(TransferMode.MOVE);
             }
@@ -69,8 +89,8 @@ public class DragDropController {
         });
 
         treeView.setOnDragEntered(event -> {
-            if (event.getGestureSource() != treeView && 
-                event.getDragboard().hasString()) {
+            if (isExternalFileDrag(event) || (event.getGestureSource() != treeView && 
+                event.getDragboard().hasString())) {
                 treeView.setStyle("-fx-border-color: #0078d4; -fx-border-width: 2px;");
             }
             event.consume();
@@ -85,6 +105,18 @@ public class DragDropController {
             Dragboard db = event.getDragboard();
             boolean success = false;
             
+            if (isExternalFileDrag(event)) {
+                NodeItem target = folderUnderCursor(event);
+                if (isUploadTarget(target)) {
+                    uploadDropped(db.getFiles(), target);
+                    success = true;
+                }
+                event.setDropCompleted(success);
+                treeView.setStyle("");
+                event.consume();
+                return;
+            }
+            
             FileEntry clipboardFile = fileOpController.getClipboardFile();
             
             if (db.hasString() && clipboardFile != null) {
@@ -120,7 +152,11 @@ public class DragDropController {
         if (table == null) return;
 
         table.setOnDragOver(event -> {
-            if (event.getGestureSource() == table && 
+            if (isExternalFileDrag(event)) {
+                if (isUploadTarget(currentFolder.get())) {
+                    event.acceptTransferModes(TransferMode.COPY);
+                }
+            } else if (event.getGestureSource() == table && 
                 event.getDragboard().hasString()) {
                 event.acceptTransferModes(TransferMode.MOVE);
             }
@@ -131,6 +167,17 @@ public class DragDropController {
             Dragboard db = event.getDragboard();
             boolean success = false;
             
+            if (isExternalFileDrag(event)) {
+                NodeItem target = currentFolder.get();
+                if (isUploadTarget(target)) {
+                    uploadDropped(db.getFiles(), target);
+                    success = true;
+                }
+                event.setDropCompleted(success);
+                event.consume();
+                return;
+            }
+            
             FileEntry clipboardFile = fileOpController.getClipboardFile();
             
             if (db.hasString() && clipboardFile != null) {
@@ -143,4 +190,48 @@ public class DragDropController {
             event.consume();
         });
     }
+
+    /**
+     * Fichiers ou dossiers glissés depuis le bureau ou un gestionnaire de fichiers.
+     */
+    private static boolean isExternalFileDrag(DragEvent event) {
+        return event.getGestureSource() == null && event.getDragboard().hasFiles();
+    }
+
+    private static boolean isUploadTarget(NodeItem folder) {
+        return folder != null && folder.getId() != null;
+    }
+
+    /**
+     * @return le dossier de la ligne de l'arborescence sous le pointeur, ou null
+     */
+    private static NodeItem folderUnderCursor(DragEvent event) {
+        Node node = event.getPickResult().getIntersectedNode();
+        while (node != null && !(node instanceof TreeCell)) {
+            node = node.getParent();
+        }
+        if (node == null) {
+            return null;
+        }
+        TreeCell<?> cell = (TreeCell<?>) node;
+        return !cell.isEmpty() && cell.getItem() instanceof NodeItem folder ? folder : null;
+    }
+
+    /**
+     * Les fichiers partent dans la file des transferts ; chaque dossier est parcouru sur son
+     * propre thread par l'upload de dossier, pour ne pas figer l'interface sur un gros dépôt.
+     */
+    private void uploadDropped(List<File> dropped, NodeItem target) {
+        List<File> files = new ArrayList<>();
+        for (File file : dropped) {
+            if (file.isDirectory()) {
+                uploadController.uploadFolder(file, target);
+            } else if (file.isFile()) {
+                files.add(file);
+            }
+        }
+        if (!files.isEmpty()) {
+            uploadController.uploadFiles(files, target);
+        }
+    }
 }
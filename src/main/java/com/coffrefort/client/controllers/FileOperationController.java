@@ -3,13 +3,21 @@ package com.coffrefort.client.controllers;
 import java.io.File;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import com.coffrefort.client.ApiClient;
 import com.coffrefort.client.model.FileEntry;
 import com.coffrefort.client.model.NodeItem;
+import com.coffrefort.client.utils.FxFutures;
 
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.TableView;
@@ -19,20 +27,26 @@ import javafx.scene.input.ClipboardContent;
 import javafx.stage.FileChooser;
 
 public class FileOperationController {
+    /** Fréquence des messages d'avancement lors d'une suppression multiple. */
+    private static final int PROGRESS_STEP = 100;
+
     private final ApiClient apiClient;
     private final TableView<FileEntry> table;
     private final Runnable refreshCallback;
     private final Consumer<String> statusCallback;
+    private final DownloadController downloadController;
 
     private FileEntry clipboardFile;
     private boolean isCutOperation;
 
     public FileOperationController(ApiClient apiClient, TableView<FileEntry> table, 
-                                   Runnable refreshCallback, Consumer<String> statusCallback) {
+                                   Runnable refreshCallback, Consumer<String> statusCallback,
+                                   DownloadController downloadController) {
         this.apiClient = apiClient;
         this.table = table;
         this.refreshCallback = refreshCallback;
         this.statusCallback = statusCallback;
+        this.downloadController = downloadController;
     }
 
     public void handleCopy() {
@@ -93,72 +107,94 @@ public class FileOperationController {
     }
 
     public void handleDelete() {
-        FileEntry selected = table.getSelectionModel().getSelectedItem();
-        if (selected == null) return;
+        List<FileEntry> selected = new ArrayList<>(table.getSelectionModel().getSelectedItems());
+        if (selected.isEmpty()) return;
 
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Supprimer");
         confirm.setHeaderText("Confirmer la suppression");
-        confirm.setContentText("Voulez-vous vraiment supprimer '" + selected.getName() + "' ?");
+        if (selected.size() == 1) {
+            confirm.setContentText("Voulez-vous vraiment supprimer '" + selected.get(0).getName() + "' ?");
+        } else {
+            confirm.setContentText("Voulez-vous vraiment supprimer ces " + selected.size() + " fichiers ?");
+        }
 
         Optional<ButtonType> result = confirm.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            deleteFileAsync(selected);
+            deleteFilesAsync(selected);
         }
     }
 
-    private void deleteFileAsync(FileEntry file) {
-        if (file.getId() == null) {
-            showStatus("Erreur : ID du fichier introuvable");
-            return;
+    /**
+     * Supprime les fichiers en lot (nombre de requêtes simultanées borné par l'ApiClient),
+     * puis rafraîchit l'arborescence une seule fois et affiche le bilan en cas d'échec.
+     */
+    private void deleteFilesAsync(List<FileEntry> files) {
+        Map<Integer, String> names = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        for (FileEntry file : files) {
+            if (file.getId() == null) {
+                showStatus("Erreur : ID du fichier introuvable (" + file.getName() + ")");
+                continue;
+            }
+            names.put(file.getId(), file.getName());
+            ids.add(file.getId());
         }
-
-        javafx.concurrent.Task<Void> deleteTask = new javafx.concurrent.Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                apiClient.deleteFile(file.getId());
-                return null;
+        if (ids.isEmpty()) return;
+
+        AtomicInteger processed = new AtomicInteger();
+        showStatus("Suppression de " + ids.size() + " fichier(s)...");
+        CompletableFuture<ApiClient.BatchResult> batch = apiClient.deleteFilesAsync(ids, (id, error) -> {
+            int count = processed.incrementAndGet();
+            if (count % PROGRESS_STEP == 0 && count < ids.size()) {
+                Platform.runLater(() -> showStatus("Suppression : " + count + " / " + ids.size()));
             }
-        };
-
-        deleteTask.setOnSucceeded(event -> {
-            showStatus("Fichier supprimé : " + file.getName());
-            refreshCallback.run();
         });
 
-        deleteTask.setOnFailed(event -> {
-            Throwable exception = deleteTask.getException();
-            String errorMessage = "Erreur lors de la suppression du fichier";
-            
-            if (exception != null) {
-                String exMsg = exception.getMessage();
-                if (exMsg != null) {
-                    if (exMsg.contains("404")) {
-                        errorMessage = "Fichier introuvable.";
-                    } else if (exMsg.contains("401")) {
-                        errorMessage = "Session expirée. Veuillez vous reconnecter.";
-                    } else if (exMsg.contains("403")) {
-                        errorMessage = "Vous n'avez pas la permission de supprimer ce fichier.";
-                    } else if (exMsg.contains("ConnectException")) {
-                        errorMessage = "Impossible de contacter le serveur.";
-                    } else {
-                        errorMessage = "Erreur: " + exMsg;
-                    }
-                }
+        FxFutures.onFxThread(batch, report -> {
+            if (!report.getSucceeded().isEmpty()) {
+                refreshCallback.run();
+            }
+            if (!report.hasFailures()) {
+                showStatus(ids.size() == 1
+                    ? "Fichier supprimé : " + names.get(ids.get(0))
+                    : ids.size() + " fichiers supprimés");
+                return;
             }
 
             Alert error = new Alert(Alert.AlertType.ERROR);
             error.setTitle("Erreur");
-            error.setHeaderText("Impossible de supprimer le fichier");
-            error.setContentText(errorMessage);
+            if (ids.size() == 1) {
+                error.setHeaderText("Impossible de supprimer le fichier");
+                error.setContentText(deleteErrorMessage(report.getFailures().values().iterator().next()));
+            } else {
+                error.setHeaderText("Certains fichiers n'ont pas été supprimés");
+                error.setContentText(report.describe(names::get));
+            }
             error.showAndWait();
 
-            showStatus("Échec de la suppression : " + file.getName());
-        });
+            showStatus("Échec de la suppression de " + report.getFailures().size() + " fichier(s)");
+        }, exception -> showStatus("Erreur lors de la suppression : " + exception.getMessage()));
+    }
 
-        Thread thread = new Thread(deleteTask, "delete-file-task-thread");
-        thread.setDaemon(true);
-        thread.start();
+    private String deleteErrorMessage(Throwable exception) {
+        String errorMessage = "Erreur lors de la suppression du fichier";
+        
+        if (exception != null) {
+            String exMsg = exception.getMessage();
+            if (exMsg != null) {
+                if (exMsg.contains("401")) {
+                    errorMessage = "Session expirée. Veuillez vous reconnecter.";
+                } else if (exMsg.contains("403")) {
+                    errorMessage = "Vous n'avez pas la permission de supprimer ce fichier.";
+                } else if (exMsg.contains("ConnectException")) {
+                    errorMessage = "Impossible de contacter le serveur.";
+                } else {
+                    errorMessage = "Erreur: " + exMsg;
+                }
+            }
+        }
+        return errorMessage;
     }
 
     public void handleDownload() {
@@ -172,6 +208,7 @@ public class FileOperationController {
         
         if (file != null) {
             showStatus("Téléchargement de : " + selected.getName());
+            downloadController.download(selected, null, selected.getSize(), file, table.getScene().getWindow());
         }
     }
 
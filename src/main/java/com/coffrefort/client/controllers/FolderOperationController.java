@@ -1,10 +1,15 @@
 package com.coffrefort.client.controllers;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.coffrefort.client.ApiClient;
 import com.coffrefort.client.model.NodeItem;
+import com.coffrefort.client.utils.FxFutures;
 
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
@@ -91,110 +96,79 @@ public class FolderOperationController {
         
         Integer parentId = currentFolder != null ? currentFolder.getId() : null;
         
-        javafx.concurrent.Task<Integer> createTask = new javafx.concurrent.Task<>() {
-            @Override
-            protected Integer call() throws Exception {
-                System.out.println("\n=== Task.call() exécutée ===");
-                System.out.println("Thread: " + Thread.currentThread().getName());
-                System.out.println("Appel apiClient.createFolder(\"" + folderName + "\", " + parentId + ")");
-                
-                try {
-                    Integer result = apiClient.createFolder(folderName, parentId);
-                    System.out.println("Résultat: " + result);
-                    return result;
-                } catch (Exception e) {
-                    System.err.println("Exception dans Task.call(): " + e.getMessage());
-                    e.printStackTrace();
-                    throw e;
-                }
-            }
-        };
+        System.out.println("Appel apiClient.createFolderAsync(\"" + folderName + "\", " + parentId + ")");
         
-        createTask.setOnSucceeded(event -> {
-            System.out.println("\n=== Task SUCCEEDED ===");
+        FxFutures.onFxThread(apiClient.createFolderAsync(folderName, parentId), folderId -> {
+            System.out.println("\n=== Création SUCCEEDED ===");
             
-            javafx.application.Platform.runLater(() -> {
-                try {
-                    System.out.println("Fermeture du dialogue de progression...");
-                    progressAlert.close();
-                    System.out.println("Dialogue fermé");
-                    
-                    Integer folderId = createTask.getValue();
-                    System.out.println("ID du dossier créé: " + folderId);
-                    
-                    Alert success = new Alert(Alert.AlertType.INFORMATION);
-                    success.setTitle("Dossier créé");
-                    success.setHeaderText("Dossier créé avec succès");
-                    success.setContentText("Le dossier '" + folderName + "' a été créé.\n" +
-                                        (folderId != null ? "ID: " + folderId : ""));
-                    success.showAndWait();
-                    
-                    System.out.println("Rafraîchissement de l'affichage...");
-                    refreshCallback.run();
-                } catch (Exception e) {
-                    System.err.println("Erreur dans Platform.runLater (success): " + e.getMessage());
-                    e.printStackTrace();
-                }
-            });
-        });
-        
-        createTask.setOnFailed(event -> {
-            System.err.println("\n=== Task FAILED ===");
+            try {
+                System.out.println("Fermeture du dialogue de progression...");
+                progressAlert.close();
+                System.out.println("Dialogue fermé");
+                
+                System.out.println("ID du dossier créé: " + folderId);
+                
+                Alert success = new Alert(Alert.AlertType.INFORMATION);
+                success.setTitle("Dossier créé");
+                success.setHeaderText("Dossier créé avec succès");
+                success.setContentText("Le dossier '" + folderName + "' a été créé.\n" +
+                                    (folderId != null ? "ID: " + folderId : ""));
+                success.showAndWait();
+                
+                System.out.println("Rafraîchissement de l'affichage...");
+                refreshCallback.run();
+            } catch (Exception e) {
+                System.err.println("Erreur dans le callback (success): " + e.getMessage());
+                e.printStackTrace();
+            }
+        }, exception -> {
+            System.err.println("\n=== Création FAILED ===");
             
-            javafx.application.Platform.runLater(() -> {
-                try {
-                    System.out.println("Fermeture du dialogue de progression (erreur)...");
-                    progressAlert.close();
-                    System.out.println("Dialogue fermé");
-                    
-                    Throwable exception = createTask.getException();
-                    System.err.println("Exception: " + (exception != null ? exception.getClass().getName() : "null"));
-                    System.err.println("Message: " + (exception != null ? exception.getMessage() : "null"));
-                    
-                    String errorMessage = "Erreur lors de la création du dossier";
+            try {
+                System.out.println("Fermeture du dialogue de progression (erreur)...");
+                progressAlert.close();
+                System.out.println("Dialogue fermé");
+                
+                System.err.println("Exception: " + (exception != null ? exception.getClass().getName() : "null"));
+                System.err.println("Message: " + (exception != null ? exception.getMessage() : "null"));
+                
+                String errorMessage = "Erreur lors de la création du dossier";
+                
+                if (exception != null) {
+                    exception.printStackTrace();
+                    String exMsg = exception.getMessage();
                     
-                    if (exception != null) {
-                        exception.printStackTrace();
-                        String exMsg = exception.getMessage();
-                        
-                        if (exMsg != null) {
-                            if (exMsg.contains("409")) {
-                                errorMessage = "Un dossier avec ce nom existe déjà.";
-                            } else if (exMsg.contains("400")) {
-                                errorMessage = "Nom de dossier invalide.";
-                            } else if (exMsg.contains("401")) {
-                                errorMessage = "Session expirée. Veuillez vous reconnecter.";
-                            } else if (exMsg.contains("404")) {
-                                errorMessage = "Endpoint introuvable. Vérifiez l'URL du serveur.";
-                            } else if (exMsg.contains("500")) {
-                                errorMessage = "Erreur interne du serveur.";
-                            } else if (exMsg.contains("ConnectException") || exMsg.contains("Connection refused")) {
-                                errorMessage = "Impossible de contacter le serveur.\nVérifiez que le backend est démarré.";
-                            } else if (exMsg.contains("timeout")) {
-                                errorMessage = "Délai d'attente dépassé.\nLe serveur ne répond pas.";
-                            } else {
-                                errorMessage = "Erreur: " + exMsg;
-                            }
+                    if (exMsg != null) {
+                        if (exMsg.contains("409")) {
+                            errorMessage = "Un dossier avec ce nom existe déjà.";
+                        } else if (exMsg.contains("400")) {
+                            errorMessage = "Nom de dossier invalide.";
+                        } else if (exMsg.contains("401")) {
+                            errorMessage = "Session expirée. Veuillez vous reconnecter.";
+                        } else if (exMsg.contains("404")) {
+                            errorMessage = "Endpoint introuvable. Vérifiez l'URL du serveur.";
+                        } else if (exMsg.contains("500")) {
+                            errorMessage = "Erreur interne du serveur.";
+                        } else if (exMsg.contains("ConnectException") || exMsg.contains("Connection refused")) {
+                            errorMessage = "Impossible de contacter le serveur.\nVérifiez que le backend est démarré.";
+                        } else if (exMsg.contains("timeout")) {
+                            errorMessage = "Délai d'attente dépassé.\nLe serveur ne répond pas.";
+                        } else {
+                            errorMessage = "Erreur: " + exMsg;
                         }
                     }
-                    
-                    Alert error = new Alert(Alert.AlertType.ERROR);
-                    error.setTitle("Erreur");
-                    error.setHeaderText("Impossible de créer le dossier");
-                    error.setContentText(errorMessage);
-                    error.showAndWait();
-                } catch (Exception e) {
-                    System.err.println("Erreur dans Platform.runLater (error): " + e.getMessage());
-                    e.printStackTrace();
                 }
-            });
+                
+                Alert error = new Alert(Alert.AlertType.ERROR);
+                error.setTitle("Erreur");
+                error.setHeaderText("Impossible de créer le dossier");
+                error.setContentText(errorMessage);
+                error.showAndWait();
+            } catch (Exception e) {
+                System.err.println("Erreur dans le callback (error): " + e.getMessage());
+                e.printStackTrace();
+            }
         });
-        
-        Thread thread = new Thread(createTask, "create-folder-task-thread");
-        thread.setDaemon(true);
-        System.out.println("Démarrage du thread...");
-        thread.start();
-        System.out.println("Thread démarré");
     }
 
     public void handleRenameFolder() {
@@ -218,23 +192,23 @@ public class FolderOperationController {
     }
 
     public void handleDeleteFolder() {
-        TreeItem<NodeItem> selected = treeView.getSelectionModel().getSelectedItem();
-        if (selected == null || selected.getValue() == null) return;
+        List<NodeItem> folders = selectedTopLevelFolders();
+        if (folders.isEmpty()) return;
 
-        NodeItem folder = selected.getValue();
-        
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
-        confirm.setTitle("Supprimer le dossier");
+        confirm.setTitle(folders.size() == 1 ? "Supprimer le dossier" : "Supprimer les dossiers");
         confirm.setHeaderText("Confirmer la suppression");
         
-        boolean hasChildren = !folder.getChildren().isEmpty();
-        boolean hasFiles = !folder.getFiles().isEmpty();
+        int childCount = 0;
+        int fileCount = 0;
+        for (NodeItem folder : folders) {
+            childCount += folder.getChildren().size();
+            fileCount += folder.getFiles().size();
+        }
         
         String contentWarning = "";
-        if (hasChildren || hasFiles) {
-            int childCount = folder.getChildren().size();
-            int fileCount = folder.getFiles().size();
-            contentWarning = "\n\nCe dossier contient ";
+        if (childCount > 0 || fileCount > 0) {
+            contentWarning = folders.size() == 1 ? "\n\nCe dossier contient " : "\n\nCes dossiers contiennent ";
             if (childCount > 0 && fileCount > 0) {
                 contentWarning += childCount + " sous-dossier(s) et " + fileCount + " fichier(s).";
             } else if (childCount > 0) {
@@ -245,64 +219,98 @@ public class FolderOperationController {
             contentWarning += "\n\nTous les éléments seront supprimés définitivement.";
         }
         
-        confirm.setContentText("Voulez-vous vraiment supprimer le dossier '" + folder.getName() + "' ?" + contentWarning);
+        if (folders.size() == 1) {
+            confirm.setContentText("Voulez-vous vraiment supprimer le dossier '" + folders.get(0).getName() + "' ?" + contentWarning);
+        } else {
+            confirm.setContentText("Voulez-vous vraiment supprimer ces " + folders.size() + " dossiers ?" + contentWarning);
+        }
 
         Optional<ButtonType> result = confirm.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            deleteFolderAsync(folder);
+            deleteFoldersAsync(folders);
         }
     }
 
-    private void deleteFolderAsync(NodeItem folder) {
-        if (folder.getId() == null) {
-            System.err.println("Erreur : ID du dossier introuvable");
-            return;
+    /**
+     * Dossiers sélectionnés, sans ceux dont un ancêtre est aussi sélectionné
+     * (ils disparaissent avec lui, les supprimer à part échouerait).
+     */
+    private List<NodeItem> selectedTopLevelFolders() {
+        List<TreeItem<NodeItem>> selectedItems = new ArrayList<>(treeView.getSelectionModel().getSelectedItems());
+        List<NodeItem> folders = new ArrayList<>();
+        for (TreeItem<NodeItem> item : selectedItems) {
+            if (item == null || item.getValue() == null) continue;
+            boolean ancestorSelected = false;
+            for (TreeItem<NodeItem> parent = item.getParent(); parent != null; parent = parent.getParent()) {
+                if (selectedItems.contains(parent)) {
+                    ancestorSelected = true;
+                    break;
+                }
+            }
+            if (!ancestorSelected) {
+                folders.add(item.getValue());
+            }
         }
+        return folders;
+    }
 
-        javafx.concurrent.Task<Void> deleteTask = new javafx.concurrent.Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                apiClient.deleteFolder(folder.getId());
-                return null;
+    /**
+     * Supprime les dossiers en lot (nombre de requêtes simultanées borné par l'ApiClient),
+     * puis rafraîchit l'arborescence une seule fois et affiche le bilan en cas d'échec.
+     */
+    private void deleteFoldersAsync(List<NodeItem> folders) {
+        Map<Integer, String> names = new HashMap<>();
+        List<Integer> ids = new ArrayList<>();
+        for (NodeItem folder : folders) {
+            if (folder.getId() == null) {
+                System.err.println("Erreur : ID du dossier introuvable (" + folder.getName() + ")");
+                continue;
             }
-        };
-
-        deleteTask.setOnSucceeded(event -> {
-            System.out.println("Dossier supprimé : " + folder.getName());
-            refreshCallback.run();
-        });
+            names.put(folder.getId(), folder.getName());
+            ids.add(folder.getId());
+        }
+        if (ids.isEmpty()) return;
 
-        deleteTask.setOnFailed(event -> {
-            Throwable exception = deleteTask.getException();
-            String errorMessage = "Erreur lors de la suppression du dossier";
-            
-            if (exception != null) {
-                String exMsg = exception.getMessage();
-                if (exMsg != null) {
-                    if (exMsg.contains("404")) {
-                        errorMessage = "Dossier introuvable.";
-                    } else if (exMsg.contains("401")) {
-                        errorMessage = "Session expirée. Veuillez vous reconnecter.";
-                    } else if (exMsg.contains("403")) {
-                        errorMessage = "Vous n'avez pas la permission de supprimer ce dossier.";
-                    } else if (exMsg.contains("ConnectException")) {
-                        errorMessage = "Impossible de contacter le serveur.";
-                    } else {
-                        errorMessage = "Erreur: " + exMsg;
-                    }
-                }
+        FxFutures.onFxThread(apiClient.deleteFoldersAsync(ids, null), report -> {
+            System.out.println(report.describe(names::get));
+            if (!report.getSucceeded().isEmpty()) {
+                refreshCallback.run();
+            }
+            if (!report.hasFailures()) {
+                return;
             }
 
             Alert error = new Alert(Alert.AlertType.ERROR);
             error.setTitle("Erreur");
-            error.setHeaderText("Impossible de supprimer le dossier");
-            error.setContentText(errorMessage);
+            if (ids.size() == 1) {
+                error.setHeaderText("Impossible de supprimer le dossier");
+                error.setContentText(deleteErrorMessage(report.getFailures().values().iterator().next()));
+            } else {
+                error.setHeaderText("Certains dossiers n'ont pas été supprimés");
+                error.setContentText(report.describe(names::get));
+            }
             error.showAndWait();
-        });
+        }, exception -> System.err.println("Erreur lors de la suppression des dossiers: " + exception.getMessage()));
+    }
 
-        Thread thread = new Thread(deleteTask, "delete-folder-task-thread");
-        thread.setDaemon(true);
-        thread.start();
+    private String deleteErrorMessage(Throwable exception) {
+        String errorMessage = "Erreur lors de la suppression du dossier";
+        
+        if (exception != null) {
+            String exMsg = exception.getMessage();
+            if (exMsg != null) {
+                if (exMsg.contains("401")) {
+                    errorMessage = "Session expirée. Veuillez vous reconnecter.";
+                } else if (exMsg.contains("403")) {
+                    errorMessage = "Vous n'avez pas la permission de supprimer ce dossier.";
+                } else if (exMsg.contains("ConnectException")) {
+                    errorMessage = "Impossible de contacter le serveur.";
+                } else {
+                    errorMessage = "Erreur: " + exMsg;
+                }
+            }
+        }
+        return errorMessage;
     }
 
     public void handleFolderProperties() {
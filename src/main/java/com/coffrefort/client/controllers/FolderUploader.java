@@ -0,0 +1,236 @@
+package com.coffrefort.client.controllers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import com.coffrefort.client.ApiClient;
+import com.coffrefort.client.utils.FxFutures;
+
+/**
+ * Upload d'un dossier local et de toute son arborescence.
+ *
+ * Le parcours ({@link Files#walkFileTree}) tourne sur son propre thread. Chaque dossier
+ * rencontré est créé côté serveur dès que son parent existe, avec au plus
+ * {@link ApiClient#getBatchConcurrency()} créations en vol : les dossiers prêts sont servis
+ * dans l'ordre d'arrivée, donc niveau par niveau. Chaque fichier est transmis à
+ * {@code onFileReady} dès que l'ID de son dossier est connu, sans attendre la fin du parcours.
+ *
+ * Si un dossier ne peut pas être créé, son contenu est ignoré et compté dans le bilan.
+ */
+class FolderUploader {
+
+    /**
+     * Bilan du parcours, une fois tous les dossiers traités.
+     */
+    static final class Result {
+        private int foldersCreated;
+        private int filesQueued;
+        private int filesSkipped;
+        private final List<String> errors = new ArrayList<>();
+
+        int getFoldersCreated() { return foldersCreated; }
+        int getFilesQueued() { return filesQueued; }
+        int getFilesSkipped() { return filesSkipped; }
+        List<String> getErrors() { return errors; }
+    }
+
+    private final class DirNode {
+        private final Path path;
+        private final DirNode parent;
+        private Integer remoteId;
+        private boolean failed;
+        private final List<File> pendingFiles = new ArrayList<>();
+        private final List<DirNode> pendingChildren = new ArrayList<>();
+
+        DirNode(Path path, DirNode parent) {
+            this.path = path;
+            this.parent = parent;
+        }
+    }
+
+    private final ApiClient apiClient;
+    private final Path root;
+    private final Integer targetFolderId;
+    private final BiConsumer<File, Integer> onFileReady;
+    private final int concurrency;
+    private final Map<Path, DirNode> nodes = new HashMap<>();
+    private final ArrayDeque<DirNode> ready = new ArrayDeque<>();
+    private final Result result = new Result();
+    private final CompletableFuture<Result> done = new CompletableFuture<>();
+    private int inFlight;
+    private boolean walkFinished;
+
+    /**
+     * @param onFileReady reçoit chaque fichier et l'ID de son dossier distant, depuis le thread
+     *                    du parcours ou un thread du dispatcher
+     */
+    FolderUploader(ApiClient apiClient, File localFolder, Integer targetFolderId, BiConsumer<File, Integer> onFileReady) {
+        this.apiClient = apiClient;
+        this.root = localFolder.toPath().toAbsolutePath().normalize();
+        this.targetFolderId = targetFolderId;
+        this.onFileReady = onFileReady;
+        this.concurrency = apiClient.getBatchConcurrency();
+    }
+
+    /**
+     * @return le bilan, une fois le parcours terminé et tous les dossiers créés
+     *         (les uploads des fichiers, eux, peuvent être encore en cours)
+     */
+    CompletableFuture<Result> start() {
+        Thread walker = new Thread(this::walk, "folder-walk");
+        walker.setDaemon(true);
+        walker.start();
+        return done;
+    }
+
+    private void walk() {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    directoryFound(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        fileFound(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    System.err.println("Élément illisible ignoré: " + file + " (" + e.getMessage() + ")");
+                    synchronized (FolderUploader.this) {
+                        result.filesSkipped++;
+                        result.errors.add(root.relativize(file) + " : illisible");
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            synchronized (this) {
+                result.errors.add("Parcours interrompu : " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            walkFinished = true;
+        }
+        checkDone();
+    }
+
+    private void directoryFound(Path dir) {
+        synchronized (this) {
+            DirNode parent = dir.equals(root) ? null : nodes.get(dir.getParent());
+            DirNode node = new DirNode(dir, parent);
+            nodes.put(dir, node);
+            if (parent == null || parent.remoteId != null) {
+                ready.add(node);
+            } else if (parent.failed) {
+                node.failed = true;
+            } else {
+                parent.pendingChildren.add(node);
+            }
+        }
+        pump();
+    }
+
+    private void fileFound(Path file) {
+        Integer folderId = null;
+        synchronized (this) {
+            DirNode node = nodes.get(file.getParent());
+            if (node.failed) {
+                result.filesSkipped++;
+            } else if (node.remoteId == null) {
+                node.pendingFiles.add(file.toFile());
+            } else {
+                folderId = node.remoteId;
+                result.filesQueued++;
+            }
+        }
+        if (folderId != null) {
+            onFileReady.accept(file.toFile(), folderId);
+        }
+    }
+
+    private void pump() {
+        List<DirNode> toCreate = new ArrayList<>();
+        synchronized (this) {
+            while (inFlight < concurrency && !ready.isEmpty()) {
+                toCreate.add(ready.poll());
+                inFlight++;
+            }
+        }
+        for (DirNode node : toCreate) {
+            Integer parentId = node.parent != null ? node.parent.remoteId : targetFolderId;
+            apiClient.createFolderAsync(node.path.getFileName().toString(), parentId)
+                .whenCompleteAsync((id, error) -> created(node, id, error));
+        }
+    }
+
+    private void created(DirNode node, Integer id, Throwable error) {
+        List<File> files;
+        synchronized (this) {
+            inFlight--;
+            if (error == null && id != null) {
+                node.remoteId = id;
+                result.foldersCreated++;
+                files = new ArrayList<>(node.pendingFiles);
+                result.filesQueued += files.size();
+                ready.addAll(node.pendingChildren);
+            } else {
+                String reason = error != null ? FxFutures.unwrap(error).getMessage() : "ID manquant dans la réponse";
+                System.err.println("Création du dossier impossible: " + node.path + " (" + reason + ")");
+                result.errors.add(displayName(node) + " : " + reason);
+                markFailed(node);
+                files = List.of();
+            }
+            node.pendingFiles.clear();
+            node.pendingChildren.clear();
+        }
+        for (File file : files) {
+            onFileReady.accept(file, id);
+        }
+        pump();
+        checkDone();
+    }
+
+    /**
+     * Marque un dossier et ses sous-dossiers déjà parcourus comme ignorés (appelé sous verrou).
+     */
+    private void markFailed(DirNode node) {
+        node.failed = true;
+        result.filesSkipped += node.pendingFiles.size();
+        for (DirNode child : node.pendingChildren) {
+            markFailed(child);
+        }
+    }
+
+    private String displayName(DirNode node) {
+        Path relative = root.getParent() != null ? root.getParent().relativize(node.path) : node.path;
+        return relative.toString();
+    }
+
+    private void checkDone() {
+        synchronized (this) {
+            if (!walkFinished || inFlight > 0 || !ready.isEmpty()) {
+                return;
+            }
+        }
+        done.complete(result);
+    }
+}
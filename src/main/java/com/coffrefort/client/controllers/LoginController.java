@@ -3,8 +3,8 @@ package com.coffrefort.client.controllers;
 import java.util.function.Consumer;
 
 import com.coffrefort.client.ApiClient;
+import com.coffrefort.client.utils.FxFutures;
 
-import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -24,6 +24,8 @@ public class LoginController {
 
     public void setApiClient(ApiClient apiClient) {
         this.apiClient = apiClient;
+        // Les connexions s'ouvrent pendant la saisie des identifiants
+        apiClient.prewarmAsync();
     }
 
     public void setOnSuccess(Consumer<String> onSuccess) {
@@ -36,6 +38,15 @@ public class LoginController {
         if (loadingIndicator != null) {
             loadingIndicator.setVisible(false);
         }
+        
+        // L'écran a pu rester ouvert plus longtemps que la durée de vie des connexions inactives
+        if (passwordField != null) {
+            passwordField.focusedProperty().addListener((obs, wasFocused, focused) -> {
+                if (focused && apiClient != null) {
+                    apiClient.prewarmAsync();
+                }
+            });
+        }
     }
 
     @FXML
@@ -67,19 +78,8 @@ public class LoginController {
             loadingIndicator.setVisible(true);
         }
         
-        // Utiliser une Task pour exécuter l'appel API hors du thread JavaFX
-        Task<Boolean> loginTask = new Task<>() {
-            @Override
-            protected Boolean call() throws Exception {
-                // Appel à l'API de connexion
-                return apiClient.login(email, password);
-            }
-        };
-        
-        // Gestion du succès
-        loginTask.setOnSucceeded(event -> {
-            Boolean success = loginTask.getValue();
-            
+        // Appel asynchrone : la réponse est traitée par le dispatcher OkHttp, l'UI sur le thread FX
+        FxFutures.onFxThread(apiClient.loginAsync(email, password), success -> {
             if (success != null && success) {
                 // Connexion réussie - appeler le callback
                 if (onSuccess != null) {
@@ -90,11 +90,7 @@ public class LoginController {
                 showError("Échec de la connexion. Vérifiez vos identifiants.");
                 resetLoginButton();
             }
-        });
-        
-        // Gestion des erreurs
-        loginTask.setOnFailed(event -> {
-            Throwable exception = loginTask.getException();
+        }, exception -> {
             String errorMessage = "Erreur de connexion";
             
             if (exception != null) {
@@ -125,11 +121,6 @@ public class LoginController {
             showError(errorMessage);
             resetLoginButton();
         });
-        
-        // Démarrer la tâche dans un thread séparé
-        Thread thread = new Thread(loginTask, "login-task-thread");
-        thread.setDaemon(true);
-        thread.start();
     }
     
     /**
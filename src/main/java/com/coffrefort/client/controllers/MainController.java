@@ -1,16 +1,23 @@
 package com.coffrefort.client.controllers;
 
+import java.io.File;
 import java.text.DecimalFormat;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import com.coffrefort.client.ApiClient;
 import com.coffrefort.client.model.FileEntry;
 import com.coffrefort.client.model.NodeItem;
 import com.coffrefort.client.model.Quota;
+import com.coffrefort.client.model.VaultTree;
+import com.coffrefort.client.utils.FxFutures;
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
@@ -19,6 +26,7 @@ import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.ProgressBar;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.SeparatorMenuItem;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
@@ -26,6 +34,7 @@ import javafx.scene.control.TableView;
 import javafx.scene.control.TreeCell;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
+import javafx.stage.FileChooser;
 import javafx.util.Callback;
 
 public class MainController {
@@ -42,12 +51,21 @@ public class MainController {
     private ApiClient apiClient;
     private NodeItem currentFolder;
     private String userEmail;
+    private VaultTree vaultTree;
+    private String changeToken;
+    /** Un rechargement (complet ou incrémental) est en cours ; champs accédés uniquement sur le thread FX. */
+    private boolean reloadInFlight;
+    /** Une demande est arrivée pendant le rechargement en cours : un seul rechargement la suivra. */
+    private boolean trailingReload;
+    private boolean trailingFullReload;
 
     private FileOperationController fileOpController;
     private VersionController versionController;
     private FolderOperationController folderOpController;
     private DragDropController dragDropController;
     private UploadController uploadController;
+    private DownloadController downloadController;
+    private TransferController transferController;
 
     public void setApiClient(ApiClient apiClient) {
         this.apiClient = apiClient;
@@ -68,14 +86,21 @@ public class MainController {
         setupTableColumns();
         setupTreeViewListener();
         
-        fileOpController = new FileOperationController(apiClient, table, this::loadData, message -> showStatus(message));
-        versionController = new VersionController(this::refreshCurrentFolder);
-        folderOpController = new FolderOperationController(apiClient, treeView, this::loadData);
-        uploadController = new UploadController(apiClient, table, this::loadData);
+        // Une seule file pour les envois et les téléchargements, affichée dans la fenêtre "Transferts"
+        TransferQueue transferQueue = new TransferQueue();
+        transferController = new TransferController(transferQueue, apiClient);
+        downloadController = new DownloadController(apiClient, transferQueue, transferController);
+        
+        fileOpController = new FileOperationController(apiClient, table, this::refreshData, message -> showStatus(message),
+            downloadController);
+        versionController = new VersionController(this::refreshCurrentFolder, downloadController);
+        folderOpController = new FolderOperationController(apiClient, treeView, this::refreshData);
+        uploadController = new UploadController(apiClient, table, this::refreshData, transferQueue, transferController);
         
         setupContextMenu();
         setupTreeContextMenu();
-        dragDropController = new DragDropController(table, treeView, this::refreshCurrentFolder, fileOpController);
+        dragDropController = new DragDropController(table, treeView, this::refreshCurrentFolder, fileOpController,
+            uploadController, () -> currentFolder);
         dragDropController.setupDragAndDrop();
         
         if (userEmail != null && userEmailLabel != null) {
@@ -84,10 +109,19 @@ public class MainController {
         
         if (apiClient != null) {
             loadData();
+            // Une fois la fenêtre affichée : proposer de reprendre les transferts interrompus
+            Platform.runLater(() -> {
+                uploadController.resumePendingUploads();
+                downloadController.resumePendingDownloads(table.getScene() != null ? table.getScene().getWindow() : null);
+            });
         }
     }
 
     private void setupTableColumns() {
+        if (table != null) {
+            // Sélection multiple pour les suppressions en lot
+            table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        }
         if (nameCol != null) {
             nameCol.setCellValueFactory(c -> new SimpleStringProperty(c.getValue().getName()));
         }
@@ -127,6 +161,8 @@ public class MainController {
 
     private void setupTreeViewListener() {
         if (treeView != null) {
+            // Sélection multiple pour les suppressions en lot ; le dossier courant est le dernier sélectionné
+            treeView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
             treeView.getSelectionModel().selectedItemProperty().addListener((obs, o, sel) -> {
                 if (sel != null) {
                     currentFolder = sel.getValue();
@@ -174,6 +210,9 @@ public class MainController {
         MenuItem versionsItem = new MenuItem("Historique des versions");
         versionsItem.setOnAction(e -> versionController.handleVersionHistory(table.getSelectionModel().getSelectedItem(), table));
 
+        MenuItem newVersionItem = new MenuItem("Envoyer une nouvelle version…");
+        newVersionItem.setOnAction(e -> uploadController.handleUploadNewVersion(table.getSelectionModel().getSelectedItem()));
+
         contextMenu.getItems().addAll(
                 copyItem, cutItem, pasteItem,
                 separator1,
@@ -181,7 +220,7 @@ public class MainController {
                 separator2,
                 downloadItem, shareItem,
                 separator3,
-                propertiesItem, versionsItem
+                propertiesItem, versionsItem, newVersionItem
         );
 
         contextMenu.setOnShowing(e -> {
@@ -198,6 +237,7 @@ public class MainController {
             shareItem.setDisable(!hasSelection);
             propertiesItem.setDisable(!hasSelection);
             versionsItem.setDisable(!hasSelection);
+            newVersionItem.setDisable(!hasSelection || selected.getId() == null);
         });
 
         table.setContextMenu(contextMenu);
@@ -240,6 +280,9 @@ public class MainController {
         MenuItem deleteFolderItem = new MenuItem("Supprimer");
         deleteFolderItem.setOnAction(e -> folderOpController.handleDeleteFolder());
 
+        MenuItem downloadFolderItem = new MenuItem("Télécharger le dossier…");
+        downloadFolderItem.setOnAction(e -> handleDownloadFolder());
+
         SeparatorMenuItem separator = new SeparatorMenuItem();
 
         MenuItem folderPropsItem = new MenuItem("Propriétés");
@@ -253,6 +296,7 @@ public class MainController {
                 separator,
                 renameFolderItem,
                 deleteFolderItem,
+                downloadFolderItem,
                 separator,
                 folderPropsItem,
                 refreshItem
@@ -264,21 +308,58 @@ public class MainController {
 
             renameFolderItem.setDisable(!hasSelection);
             deleteFolderItem.setDisable(!hasSelection);
+            downloadFolderItem.setDisable(!hasSelection);
             folderPropsItem.setDisable(!hasSelection);
         });
 
         return treeContextMenu;
     }
 
+    /**
+     * Télécharge le dossier sélectionné dans l'arbre, sous-dossiers compris, en archive ZIP.
+     */
+    private void handleDownloadFolder() {
+        TreeItem<NodeItem> selected = treeView.getSelectionModel().getSelectedItem();
+        if (selected == null || selected.getValue() == null) return;
+        NodeItem folder = selected.getValue();
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Enregistrer le dossier");
+        chooser.setInitialFileName(folder.getName() + ".zip");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Archive ZIP", "*.zip"));
+        File file = chooser.showSaveDialog(treeView.getScene().getWindow());
+
+        if (file != null) {
+            showStatus("Téléchargement du dossier : " + folder.getName());
+            downloadController.downloadFolder(folder, file, treeView.getScene().getWindow());
+        }
+    }
+
     @FXML
     private void handleUpload() {
+        if (checkUploadTarget()) {
+            uploadController.handleUpload(currentFolder);
+        }
+    }
+
+    @FXML
+    private void handleUploadFolder() {
+        if (checkUploadTarget()) {
+            uploadController.handleUploadFolder(currentFolder);
+        }
+    }
+
+    /**
+     * Vérifie qu'un dossier de destination valide est sélectionné, sinon prévient l'utilisateur.
+     */
+    private boolean checkUploadTarget() {
         if (currentFolder == null) {
             Alert alert = new Alert(Alert.AlertType.WARNING);
             alert.setTitle("Sélection requise");
             alert.setHeaderText("Aucun dossier sélectionné");
             alert.setContentText("Veuillez sélectionner un dossier avant d'uploader un fichier.");
             alert.showAndWait();
-            return;
+            return false;
         }
         if (currentFolder.getId() == null) {
             Alert alert = new Alert(Alert.AlertType.ERROR);
@@ -286,9 +367,14 @@ public class MainController {
             alert.setHeaderText("Dossier invalide");
             alert.setContentText("L'ID du dossier sélectionné est invalide. Veuillez sélectionner un autre dossier.");
             alert.showAndWait();
-            return;
+            return false;
         }
-        uploadController.handleUpload(currentFolder);
+        return true;
+    }
+
+    @FXML
+    private void handleShowTransfers() {
+        transferController.show(table.getScene() != null ? table.getScene().getWindow() : null);
     }
 
     @FXML
@@ -432,20 +518,204 @@ public class MainController {
         }
     }
 
+    /**
+     * Recharge entièrement l'arborescence.
+     */
     private void loadData() {
-        List<NodeItem> roots = apiClient.listRoot();
-        TreeItem<NodeItem> hiddenRoot = new TreeItem<>(NodeItem.folder("root"));
-        for (NodeItem n : roots) {
-            hiddenRoot.getChildren().add(buildTree(n));
+        requestReload(true);
+    }
+
+    /**
+     * Rafraîchissement après une opération (upload, suppression, création...) :
+     * seuls les changements survenus depuis le dernier jeton sont récupérés et appliqués.
+     */
+    private void refreshData() {
+        requestReload(false);
+    }
+
+    /**
+     * Point d'entrée unique des rechargements ("single-flight") : une rafale de demandes
+     * (ex. plusieurs suppressions) ne lance qu'un appel à la fois. Les demandes reçues
+     * pendant un appel sont regroupées en un seul rechargement final, pour prendre en
+     * compte les modifications faites entre-temps ; il est complet si l'une d'elles l'était.
+     */
+    private void requestReload(boolean full) {
+        if (reloadInFlight) {
+            trailingReload = true;
+            trailingFullReload |= full;
+            return;
         }
-        treeView.setRoot(hiddenRoot);
-        if (!hiddenRoot.getChildren().isEmpty()) {
-            treeView.getSelectionModel().select(hiddenRoot.getChildren().get(0));
+        reloadInFlight = true;
+        CompletableFuture<Void> reload = full || vaultTree == null || changeToken == null
+            ? fetchTree()
+            : fetchChanges();
+        reload.whenComplete((done, error) -> Platform.runLater(this::reloadFinished));
+    }
+
+    private void reloadFinished() {
+        reloadInFlight = false;
+        if (trailingReload) {
+            boolean full = trailingFullReload;
+            trailingReload = false;
+            trailingFullReload = false;
+            requestReload(full);
         }
+    }
+
+    /**
+     * Recharge l'arborescence en flux : les dossiers sont affichés au fur et à mesure
+     * de leur arrivée, sans attendre la fin du chargement.
+     * @return future terminé (sur le thread FX) une fois l'arborescence affichée
+     */
+    private CompletableFuture<Void> fetchTree() {
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        VaultTree vaultTree = new VaultTree();
+        TreeItem<NodeItem> hiddenRoot = new TreeItem<>(NodeItem.folder("root"));
+        Map<NodeItem, TreeItem<NodeItem>> treeItems = new HashMap<>();
+        this.vaultTree = vaultTree;
+        this.changeToken = null;
+        
+        vaultTree.setListener((folder, parent) -> {
+            TreeItem<NodeItem> item = new TreeItem<>(folder);
+            item.setExpanded(true);
+            treeItems.put(folder, item);
+            TreeItem<NodeItem> parentItem = parent != null ? treeItems.get(parent) : hiddenRoot;
+            parentItem.getChildren().add(item);
+            
+            if (parent == null && hiddenRoot.getChildren().size() == 1 && treeView.getRoot() == hiddenRoot) {
+                treeView.getSelectionModel().select(item);
+            }
+        });
+        treeView.setRoot(hiddenRoot);
+        
+        // Le jeton est pris avant la liste : les changements faits pendant le chargement seront rejoués
+        CompletableFuture<String> token = apiClient.fetchChangeTokenAsync()
+            .exceptionally(error -> {
+                System.out.println("Synchronisation incrémentale indisponible: " + FxFutures.unwrap(error).getMessage());
+                return null;
+            });
+        
+        CompletableFuture<String> loading = token.thenCompose(t -> apiClient.listRootAsync(new ApiClient.ListingListener() {
+            @Override
+            public void onFolders(List<ApiClient.FolderDto> folders) {
+                Platform.runLater(() -> {
+                    for (ApiClient.FolderDto folder : folders) {
+                        vaultTree.addFolder(folder.getId(), folder.getName(), folder.getParentId());
+                    }
+                });
+            }
+
+            @Override
+            public void onFiles(List<ApiClient.FileDto> files) {
+                Platform.runLater(() -> {
+                    boolean currentFolderChanged = false;
+                    for (ApiClient.FileDto file : files) {
+                        NodeItem folder = vaultTree.addFile(file.getFolderId(), file.toFileEntry());
+                        currentFolderChanged |= folder != null && folder == currentFolder;
+                    }
+                    if (currentFolderChanged) {
+                        refreshCurrentFolder();
+                    }
+                });
+            }
+        }).thenApply(done -> t));
+        
+        FxFutures.onFxThread(loading, t -> {
+            finishLoading(vaultTree, true);
+            changeToken = t;
+            refreshCurrentFolder();
+            System.out.println(apiClient.getCacheStats());
+            finished.complete(null);
+        }, error -> {
+            // Ce qui a été reçu reste affiché ; sans jeton, le prochain rafraîchissement recharge tout
+            boolean foldersLoaded = error instanceof ApiClient.ListingException
+                && ((ApiClient.ListingException) error).getFolderError() == null;
+            System.err.println("Erreur lors de la récupération de l'arborescence: " + error.getMessage());
+            error.printStackTrace();
+            finishLoading(vaultTree, foldersLoaded);
+            refreshCurrentFolder();
+            
+            if (!foldersLoaded && vaultTree.getRoots().isEmpty()) {
+                // Surtout pas de coffre vide affiché comme si les dossiers avaient disparu
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Erreur");
+                alert.setHeaderText("Impossible de charger vos dossiers");
+                alert.setContentText(error.getMessage() + "\n\nUtilisez « Actualiser » pour réessayer.");
+                alert.show();
+            } else {
+                showStatus("Arborescence incomplète, actualisez pour réessayer");
+            }
+            finished.complete(null);
+        });
 
         Quota q = apiClient.getQuota();
         quotaBar.setProgress(q.getUsageRatio());
         quotaLabel.setText(humanSize(q.getUsed()) + " / " + humanSize(q.getMax()));
+        return finished;
+    }
+
+    /**
+     * Rattache les dossiers orphelins ; affiche un dossier vide si le coffre n'en contient aucun.
+     * @param foldersLoaded false si la liste des dossiers a échoué : pas de dossier par défaut dans ce cas
+     */
+    private void finishLoading(VaultTree vaultTree, boolean foldersLoaded) {
+        vaultTree.complete();
+        if (foldersLoaded && vaultTree.getRoots().isEmpty()) {
+            vaultTree.addFolder(null, "Mes documents", null);
+        }
+        // La suite des mises à jour passe par refreshData() et reconstruit l'affichage
+        vaultTree.setListener(null);
+    }
+
+    /**
+     * Récupère et applique les changements survenus depuis le dernier jeton.
+     * Si le serveur refuse le jeton, l'arborescence est rechargée entièrement.
+     * @return future terminé (sur le thread FX) une fois les changements appliqués
+     */
+    private CompletableFuture<Void> fetchChanges() {
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        VaultTree tree = vaultTree;
+        // Aucun autre rechargement ne peut modifier l'arborescence pendant cet appel (voir requestReload)
+        FxFutures.onFxThread(apiClient.fetchChangesAsync(changeToken), changeSet -> {
+            changeSet.applyTo(tree);
+            changeToken = changeSet.getNextToken();
+            System.out.println(changeSet.getChanges().size() + " changement(s) appliqué(s)");
+            if (!changeSet.getChanges().isEmpty()) {
+                rebuildTreeView();
+            }
+            finished.complete(null);
+        }, error -> {
+            System.err.println("Synchronisation incrémentale impossible, rechargement complet: " + error.getMessage());
+            // Le rechargement complet fait partie du même appel : les demandes suivantes l'attendent
+            fetchTree().whenComplete((done, fetchError) -> finished.complete(null));
+        });
+        return finished;
+    }
+
+    /**
+     * Reconstruit l'affichage de l'arborescence à partir du modèle en mémoire,
+     * en conservant le dossier sélectionné s'il existe toujours.
+     */
+    private void rebuildTreeView() {
+        NodeItem selected = currentFolder;
+        TreeItem<NodeItem> hiddenRoot = new TreeItem<>(NodeItem.folder("root"));
+        TreeItem<NodeItem> selectedItem = null;
+        for (NodeItem n : vaultTree.getRoots()) {
+            TreeItem<NodeItem> item = buildTree(n);
+            hiddenRoot.getChildren().add(item);
+            if (selectedItem == null) {
+                selectedItem = findTreeItem(item, selected);
+            }
+        }
+        treeView.setRoot(hiddenRoot);
+        
+        if (selectedItem == null && !hiddenRoot.getChildren().isEmpty()) {
+            selectedItem = hiddenRoot.getChildren().get(0);
+        }
+        if (selectedItem != null) {
+            treeView.getSelectionModel().select(selectedItem);
+        }
+        refreshCurrentFolder();
     }
 
     private TreeItem<NodeItem> buildTree(NodeItem node) {
@@ -457,6 +727,16 @@ public class MainController {
         return ti;
     }
 
+    private TreeItem<NodeItem> findTreeItem(TreeItem<NodeItem> item, NodeItem node) {
+        if (node == null) return null;
+        if (item.getValue() == node) return item;
+        for (TreeItem<NodeItem> child : item.getChildren()) {
+            TreeItem<NodeItem> found = findTreeItem(child, node);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
     private void refreshCurrentFolder() {
         if (currentFolder != null) {
             table.getItems().setAll(currentFolder.getFiles());
@@ -0,0 +1,271 @@
+package com.coffrefort.client.controllers;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import com.coffrefort.client.ApiClient;
+import com.coffrefort.client.model.TransferItem;
+import com.coffrefort.client.model.TransferItem.State;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.MenuButton;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.Separator;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.ToolBar;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+import javafx.util.StringConverter;
+
+/**
+ * Fenêtre "Transferts" : liste de la {@link TransferQueue} avec progression, pause/reprise,
+ * priorités, réordonnancement et débit global.
+ *
+ * Les octets transférés changent en continu depuis les threads réseau : la liste est
+ * rafraîchie à intervalle fixe plutôt qu'à chaque notification.
+ */
+public class TransferController {
+
+    private static final long REFRESH_INTERVAL_NANOS = 250_000_000L;
+    private static final int MAX_CONCURRENT_LIMIT = 10;
+    /** Limites de débit proposées, en octets par seconde (0 = illimité) */
+    private static final List<Long> RATE_LIMITS = List.of(0L, 128L * 1024, 256L * 1024, 512L * 1024,
+        1024L * 1024, 2L * 1024 * 1024, 5L * 1024 * 1024, 10L * 1024 * 1024);
+
+    private final TransferQueue queue;
+    private final ApiClient apiClient;
+    private Stage stage;
+    private TableView<TransferItem> transfersTable;
+    private Label summaryLabel;
+    private Button pauseAllButton;
+    private final AnimationTimer refresher = new AnimationTimer() {
+        private long lastRefresh;
+
+        @Override
+        public void handle(long now) {
+            if (now - lastRefresh >= REFRESH_INTERVAL_NANOS) {
+                lastRefresh = now;
+                refresh();
+            }
+        }
+    };
+
+    public TransferController(TransferQueue queue, ApiClient apiClient) {
+        this.queue = queue;
+        this.apiClient = apiClient;
+    }
+
+    public void show(Window owner) {
+        if (stage == null) {
+            stage = buildStage(owner);
+        }
+        refresher.start();
+        stage.show();
+        stage.toFront();
+    }
+
+    private Stage buildStage(Window owner) {
+        transfersTable = new TableView<>(queue.getItems());
+        transfersTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        transfersTable.setPlaceholder(new Label("Aucun transfert"));
+
+        TableColumn<TransferItem, String> directionCol = new TableColumn<>("Sens");
+        directionCol.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getDirection().toString()));
+        directionCol.setPrefWidth(80);
+
+        TableColumn<TransferItem, String> nameCol = new TableColumn<>("Nom");
+        nameCol.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getName()));
+        nameCol.setPrefWidth(220);
+
+        TableColumn<TransferItem, String> sizeCol = new TableColumn<>("Taille");
+        sizeCol.setCellValueFactory(cell -> new SimpleStringProperty(humanSize(cell.getValue().getTotalBytes())));
+        sizeCol.setPrefWidth(80);
+
+        TableColumn<TransferItem, TransferItem> progressCol = new TableColumn<>("Progression");
+        progressCol.setCellValueFactory(cell -> new SimpleObjectProperty<>(cell.getValue()));
+        progressCol.setCellFactory(col -> new TableCell<>() {
+            private final ProgressBar bar = new ProgressBar(0);
+
+            {
+                bar.setMaxWidth(Double.MAX_VALUE);
+            }
+
+            @Override
+            protected void updateItem(TransferItem item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setGraphic(null);
+                } else {
+                    bar.setProgress(item.getProgress());
+                    setGraphic(bar);
+                }
+            }
+        });
+        progressCol.setPrefWidth(160);
+
+        TableColumn<TransferItem, String> stateCol = new TableColumn<>("État");
+        stateCol.setCellValueFactory(cell -> {
+            TransferItem item = cell.getValue();
+            String text = item.getState().toString();
+            if (item.getState() == State.FAILED && item.getErrorMessage() != null) {
+                text += " : " + item.getErrorMessage().replace('\n', ' ');
+            }
+            return new SimpleStringProperty(text);
+        });
+        stateCol.setPrefWidth(200);
+
+        TableColumn<TransferItem, String> priorityCol = new TableColumn<>("Priorité");
+        priorityCol.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getPriority().toString()));
+        priorityCol.setPrefWidth(80);
+
+        transfersTable.getColumns().addAll(List.of(directionCol, nameCol, sizeCol, progressCol, stateCol, priorityCol));
+        VBox.setVgrow(transfersTable, Priority.ALWAYS);
+
+        Button pauseButton = new Button("⏸ Pause");
+        pauseButton.setOnAction(e -> forSelection(queue::pause));
+        Button resumeButton = new Button("▶ Reprendre");
+        resumeButton.setOnAction(e -> forSelection(queue::resume));
+        Button cancelButton = new Button("✖ Annuler");
+        cancelButton.setOnAction(e -> forSelection(queue::cancel));
+        Button upButton = new Button("⬆");
+        upButton.setOnAction(e -> forSelection(queue::moveUp));
+        Button downButton = new Button("⬇");
+        downButton.setOnAction(e -> {
+            // Du dernier au premier, pour que les éléments sélectionnés gardent leur ordre
+            List<TransferItem> selected = new ArrayList<>(transfersTable.getSelectionModel().getSelectedItems());
+            for (int i = selected.size() - 1; i >= 0; i--) {
+                queue.moveDown(selected.get(i));
+            }
+            refresh();
+        });
+
+        MenuButton priorityButton = new MenuButton("Priorité");
+        for (TransferItem.Priority priority : TransferItem.Priority.values()) {
+            MenuItem item = new MenuItem(priority.toString());
+            item.setOnAction(e -> forSelection(selected -> queue.setPriority(selected, priority)));
+            priorityButton.getItems().add(item);
+        }
+
+        pauseAllButton = new Button();
+        pauseAllButton.setOnAction(e -> {
+            if (queue.isPaused()) {
+                queue.resumeAll();
+            } else {
+                queue.pauseAll();
+            }
+            refresh();
+        });
+        Button clearButton = new Button("Retirer les terminés");
+        clearButton.setOnAction(e -> queue.clearFinished());
+
+        Spinner<Integer> concurrency = new Spinner<>(1, MAX_CONCURRENT_LIMIT, queue.getMaxConcurrent());
+        concurrency.setPrefWidth(70);
+        concurrency.valueProperty().addListener((obs, old, value) -> queue.setMaxConcurrent(value));
+
+        // S'applique aux envois qui démarrent ensuite
+        CheckBox compressionBox = new CheckBox("Compresser les envois");
+        compressionBox.setSelected(apiClient.isUploadCompression());
+        compressionBox.selectedProperty().addListener((obs, old, value) -> apiClient.setUploadCompression(value));
+
+        ToolBar toolBar = new ToolBar(pauseButton, resumeButton, cancelButton, new Separator(),
+            upButton, downButton, priorityButton, new Separator(),
+            pauseAllButton, clearButton, new Separator(),
+            new Label("Simultanés :"), concurrency, new Separator(), compressionBox);
+
+        // Les transferts en cours suivent la nouvelle limite sans être relancés
+        ToolBar limitsBar = new ToolBar(
+            new Label("Débit max. envoi :"), rateChoice(apiClient.getUploadLimit(), apiClient::setUploadLimit),
+            new Label("réception :"), rateChoice(apiClient.getDownloadLimit(), apiClient::setDownloadLimit));
+
+        summaryLabel = new Label();
+        VBox root = new VBox(8, toolBar, limitsBar, transfersTable, summaryLabel);
+        root.setPadding(new Insets(10));
+
+        Stage window = new Stage();
+        window.setTitle("Transferts");
+        window.initOwner(owner);
+        window.setScene(new Scene(root, 900, 420));
+        window.setOnHidden(e -> refresher.stop());
+        refresh();
+        return window;
+    }
+
+    private static ChoiceBox<Long> rateChoice(long current, LongConsumer apply) {
+        ChoiceBox<Long> choice = new ChoiceBox<>();
+        choice.getItems().addAll(RATE_LIMITS);
+        if (!RATE_LIMITS.contains(current)) {
+            choice.getItems().add(current);
+        }
+        choice.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(Long rate) {
+                return rate == null || rate == 0 ? "Illimité" : humanSize(rate) + "/s";
+            }
+
+            @Override
+            public Long fromString(String text) {
+                return null;
+            }
+        });
+        choice.setValue(current);
+        choice.valueProperty().addListener((obs, old, value) -> apply.accept(value != null ? value : 0));
+        return choice;
+    }
+
+    private void forSelection(Consumer<TransferItem> action) {
+        for (TransferItem item : new ArrayList<>(transfersTable.getSelectionModel().getSelectedItems())) {
+            action.accept(item);
+        }
+        refresh();
+    }
+
+    private void refresh() {
+        transfersTable.refresh();
+        pauseAllButton.setText(queue.isPaused() ? "▶ Tout reprendre" : "⏸ Tout suspendre");
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(queue.count(State.RUNNING)).append(" en cours, ")
+            .append(queue.count(State.QUEUED)).append(" en attente, ")
+            .append(queue.count(State.COMPLETED)).append(" terminé(s)");
+        int failed = queue.count(State.FAILED);
+        if (failed > 0) {
+            summary.append(", ").append(failed).append(" en échec");
+        }
+        int paused = queue.count(State.PAUSED);
+        if (paused > 0) {
+            summary.append(", ").append(paused).append(" en pause");
+        }
+        summary.append(" — ").append(humanSize((long) queue.sampleThroughput())).append("/s");
+        summaryLabel.setText(summary.toString());
+    }
+
+    private static String humanSize(long bytes) {
+        if (bytes < 1024) return bytes + " o";
+        double v = bytes;
+        String[] units = {"Ko", "Mo", "Go", "To"};
+        int i = -1;
+        while (v >= 1024 && i < units.length - 1) {
+            v /= 1024.0;
+            i++;
+        }
+        return new DecimalFormat("0.##").format(v) + " " + units[i];
+    }
+}
@@ -0,0 +1,315 @@
+package com.coffrefort.client.controllers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import com.coffrefort.client.model.TransferItem;
+import com.coffrefort.client.model.TransferItem.Direction;
+import com.coffrefort.client.model.TransferItem.Priority;
+import com.coffrefort.client.model.TransferItem.State;
+import com.coffrefort.client.utils.FxFutures;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * File d'attente des transferts : au plus {@code maxConcurrent} transferts à la fois,
+ * les suivants partent par priorité puis par ordre d'arrivée.
+ *
+ * Toutes les méthodes s'appellent depuis le thread JavaFX. Mettre un transfert en pause
+ * annule son envoi ; à la reprise, la tâche est relancée (un upload découpé repart
+ * des blocs déjà reçus par le serveur).
+ */
+public class TransferQueue {
+
+    /**
+     * Transfert à lancer ; annuler le future retourné doit interrompre le transfert.
+     */
+    @FunctionalInterface
+    public interface TransferTask {
+        /**
+         * @param onBytesTransferred reçoit le total d'octets transférés, depuis n'importe quel thread
+         */
+        CompletableFuture<?> start(LongConsumer onBytesTransferred);
+    }
+
+    public static final int DEFAULT_MAX_CONCURRENT = 3;
+    /** Fenêtre de calcul du débit global */
+    private static final long THROUGHPUT_WINDOW_NANOS = 3_000_000_000L;
+
+    private static final Comparator<TransferItem> QUEUE_ORDER =
+        Comparator.comparing(TransferItem::getPriority).thenComparingLong(TransferItem::getOrder);
+
+    private final ObservableList<TransferItem> items = FXCollections.observableArrayList();
+    private final Map<TransferItem, TransferTask> tasks = new HashMap<>();
+    private final Map<TransferItem, CompletableFuture<?>> running = new HashMap<>();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final ArrayDeque<long[]> throughputSamples = new ArrayDeque<>();
+    private int maxConcurrent = DEFAULT_MAX_CONCURRENT;
+    private boolean paused;
+    private long nextOrder;
+    private final List<Consumer<TransferItem>> finishedListeners = new ArrayList<>();
+
+    /**
+     * @return les transferts, dans l'ordre de passage (terminés compris)
+     */
+    public ObservableList<TransferItem> getItems() {
+        return items;
+    }
+
+    /**
+     * Appelé sur le thread JavaFX à la fin de chaque transfert (réussi ou en échec, pas annulé),
+     * quel que soit son sens : à chaque écouteur de trier ceux qui le concernent.
+     */
+    public void addFinishedListener(Consumer<TransferItem> listener) {
+        finishedListeners.add(listener);
+    }
+
+    public TransferItem add(Direction direction, String name, long totalBytes, Priority priority, TransferTask task) {
+        TransferItem item = new TransferItem(direction, name, totalBytes, priority);
+        item.setOrder(nextOrder++);
+        tasks.put(item, task);
+        // Insertion à sa place plutôt qu'un tri complet : les gros lots ajoutent des milliers d'éléments
+        int index = Collections.binarySearch(items, item, QUEUE_ORDER);
+        items.add(index < 0 ? -index - 1 : index, item);
+        pump();
+        return item;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        pump();
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Suspend toute la file : les transferts en cours sont interrompus, plus aucun ne démarre.
+     */
+    public void pauseAll() {
+        paused = true;
+        for (TransferItem item : new ArrayList<>(running.keySet())) {
+            interrupt(item, State.PAUSED);
+        }
+    }
+
+    /**
+     * Relance la file et tous les transferts en pause.
+     */
+    public void resumeAll() {
+        paused = false;
+        for (TransferItem item : items) {
+            if (item.getState() == State.PAUSED) {
+                item.setState(State.QUEUED);
+            }
+        }
+        pump();
+    }
+
+    public void pause(TransferItem item) {
+        if (item.getState() == State.RUNNING) {
+            interrupt(item, State.PAUSED);
+            pump();
+        } else if (item.getState() == State.QUEUED) {
+            item.setState(State.PAUSED);
+        }
+    }
+
+    /**
+     * Remet en file un transfert en pause, ou en échec pour un nouvel essai.
+     */
+    public void resume(TransferItem item) {
+        if (item.getState() == State.PAUSED || item.getState() == State.FAILED) {
+            item.setState(State.QUEUED);
+            item.setFailure(null);
+            item.setErrorMessage(null);
+            pump();
+        }
+    }
+
+    public void cancel(TransferItem item) {
+        if (item.getState() == State.RUNNING) {
+            interrupt(item, State.CANCELLED);
+            pump();
+        } else if (item.isPending()) {
+            item.setState(State.CANCELLED);
+            tasks.remove(item);
+        }
+    }
+
+    public void setPriority(TransferItem item, Priority priority) {
+        item.setPriority(priority);
+        sortItems();
+        pump();
+    }
+
+    /**
+     * Fait passer un transfert en attente avant le précédent dans la file
+     * (il prend alors la priorité de celui-ci).
+     */
+    public void moveUp(TransferItem item) {
+        swapWithNeighbour(item, -1);
+    }
+
+    public void moveDown(TransferItem item) {
+        swapWithNeighbour(item, 1);
+    }
+
+    /**
+     * Retire de la liste les transferts terminés, réussis ou non.
+     */
+    public void clearFinished() {
+        items.removeIf(TransferItem::isFinished);
+        tasks.keySet().removeIf(TransferItem::isFinished);
+    }
+
+    public int count(State state) {
+        return count(null, state);
+    }
+
+    /**
+     * @param direction sens des transferts à compter, null pour les deux
+     */
+    public int count(Direction direction, State state) {
+        int count = 0;
+        for (TransferItem item : items) {
+            if (item.getState() == state && (direction == null || item.getDirection() == direction)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Débit global en octets par seconde, sur les dernières secondes.
+     * Prévu pour être appelé régulièrement par l'affichage.
+     */
+    public double sampleThroughput() {
+        long now = System.nanoTime();
+        long total = bytesTransferred.get();
+        throughputSamples.addLast(new long[] {now, total});
+        while (throughputSamples.size() > 2 && now - throughputSamples.peekFirst()[0] > THROUGHPUT_WINDOW_NANOS) {
+            throughputSamples.removeFirst();
+        }
+        long[] oldest = throughputSamples.peekFirst();
+        long elapsed = now - oldest[0];
+        return elapsed > 0 ? (total - oldest[1]) * 1e9 / elapsed : 0;
+    }
+
+    private void pump() {
+        if (paused) {
+            return;
+        }
+        while (running.size() < maxConcurrent) {
+            TransferItem next = null;
+            for (TransferItem item : items) {
+                if (item.getState() == State.QUEUED && (next == null || QUEUE_ORDER.compare(item, next) < 0)) {
+                    next = item;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            start(next);
+        }
+    }
+
+    private void start(TransferItem item) {
+        item.setState(State.RUNNING);
+        int attempt = item.nextAttempt();
+        AtomicBoolean firstUpdate = new AtomicBoolean(true);
+
+        CompletableFuture<?> future = tasks.get(item).start(bytes -> {
+            if (item.getAttempt() != attempt) {
+                return; // Envoi interrompu depuis
+            }
+            long previous = item.exchangeTransferredBytes(bytes);
+            // La première valeur d'un envoi repris compte les blocs déjà reçus : ce n'est pas du débit
+            if (!firstUpdate.getAndSet(false) && bytes > previous) {
+                bytesTransferred.addAndGet(bytes - previous);
+            }
+        });
+        running.put(item, future);
+        FxFutures.onFxThread(future, result -> finished(item, future, null), error -> finished(item, future, error));
+    }
+
+    private void finished(TransferItem item, CompletableFuture<?> future, Throwable error) {
+        if (running.get(item) != future) {
+            return; // Interrompu par pause ou annulation : l'état est déjà à jour
+        }
+        running.remove(item);
+        if (error == null) {
+            item.setState(State.COMPLETED);
+            item.setTransferredBytes(item.getTotalBytes());
+            tasks.remove(item);
+        } else if (!(error instanceof CancellationException)) {
+            item.setState(State.FAILED);
+            item.setFailure(error);
+            item.setErrorMessage(error.getMessage());
+            System.err.println("Transfert en échec: " + item.getName() + " (" + error.getMessage() + ")");
+        }
+        if (item.isFinished()) {
+            for (Consumer<TransferItem> listener : finishedListeners) {
+                listener.accept(item);
+            }
+        }
+        pump();
+    }
+
+    private void interrupt(TransferItem item, State state) {
+        item.setState(state);
+        item.nextAttempt();
+        CompletableFuture<?> future = running.remove(item);
+        if (future != null) {
+            future.cancel(true);
+        }
+        if (state == State.CANCELLED) {
+            tasks.remove(item);
+        }
+    }
+
+    private void swapWithNeighbour(TransferItem item, int direction) {
+        if (!item.isPending()) {
+            return;
+        }
+        List<TransferItem> pending = new ArrayList<>();
+        for (TransferItem candidate : items) {
+            if (candidate.isPending()) {
+                pending.add(candidate);
+            }
+        }
+        pending.sort(QUEUE_ORDER);
+        int index = pending.indexOf(item) + direction;
+        if (index < 0 || index >= pending.size()) {
+            return;
+        }
+        TransferItem neighbour = pending.get(index);
+        long first = Math.min(item.getOrder(), neighbour.getOrder());
+        long second = Math.max(item.getOrder(), neighbour.getOrder());
+        item.setPriority(neighbour.getPriority());
+        item.setOrder(direction < 0 ? first : second);
+        neighbour.setOrder(direction < 0 ? second : first);
+        sortItems();
+    }
+
+    private void sortItems() {
+        FXCollections.sort(items, QUEUE_ORDER);
+    }
+}
@@ -1,137 +1,277 @@
 package com.coffrefort.client.controllers;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.coffrefort.client.ApiClient;
+import com.coffrefort.client.model.FileEntry;
 import com.coffrefort.client.model.NodeItem;
+import com.coffrefort.client.model.TransferItem;
+import com.coffrefort.client.model.UploadSession;
+import com.coffrefort.client.utils.FxFutures;
 
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
-import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 
 public class UploadController {
+    /** Nombre maximal de fichiers détaillés dans le bilan des échecs */
+    private static final int MAX_REPORTED_FAILURES = 10;
+
     private final ApiClient apiClient;
     private final javafx.scene.control.TableView<?> table;
     private final Runnable refreshCallback;
+    private final TransferQueue queue;
+    private final TransferController transferController;
+    /** Échecs depuis que la file s'est vidée pour la dernière fois */
+    private final List<TransferItem> failures = new ArrayList<>();
 
     public UploadController(ApiClient apiClient, javafx.scene.control.TableView<?> table, 
-                           Runnable refreshCallback) {
+                           Runnable refreshCallback, TransferQueue queue, TransferController transferController) {
         this.apiClient = apiClient;
         this.table = table;
         this.refreshCallback = refreshCallback;
+        this.queue = queue;
+        this.transferController = transferController;
+        queue.addFinishedListener(this::uploadFinished);
     }
 
     public void handleUpload(NodeItem currentFolder) {
         FileChooser chooser = new FileChooser();
-        chooser.setTitle("Choisir un fichier à envoyer");
-        File file = chooser.showOpenDialog(table.getScene().getWindow());
-        if (file != null) {
-            uploadFileAsync(file, currentFolder);
+        chooser.setTitle("Choisir les fichiers à envoyer");
+        List<File> files = chooser.showOpenMultipleDialog(table.getScene().getWindow());
+        if (files != null && !files.isEmpty()) {
+            uploadFiles(files, currentFolder);
         }
     }
 
-    private void uploadFileAsync(File file, NodeItem currentFolder) {
-        System.out.println("\n=== uploadFileAsync() appelée ===");
-        System.out.println("Fichier: " + file.getName());
-        System.out.println("Taille: " + file.length());
-        System.out.println("Parent ID: " + (currentFolder != null ? currentFolder.getId() : "null"));
-        
-        Alert progressAlert = new Alert(Alert.AlertType.INFORMATION);
-        progressAlert.setTitle("Upload en cours");
-        progressAlert.setHeaderText("Upload de : " + file.getName());
-        progressAlert.setContentText("Veuillez patienter...");
-        
-        ProgressIndicator progressIndicator = new ProgressIndicator();
-        progressIndicator.setProgress(ProgressIndicator.INDETERMINATE_PROGRESS);
-        progressAlert.setGraphic(progressIndicator);
-        
-        progressAlert.getButtonTypes().clear();
-        progressAlert.show();
-        System.out.println("Dialog de progression affiché");
-        
+    /**
+     * Met les fichiers dans la file des transferts, qui les envoie quelques-uns à la fois.
+     */
+    public void uploadFiles(List<File> files, NodeItem currentFolder) {
         Integer folderId = currentFolder != null ? currentFolder.getId() : null;
+        System.out.println(files.size() + " fichier(s) mis en file vers le dossier " + folderId);
+        for (File file : files) {
+            enqueueUpload(file, folderId, TransferItem.Priority.NORMAL);
+        }
+        showTransfers();
+    }
+
+    public void handleUploadFolder(NodeItem currentFolder) {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Choisir le dossier à envoyer");
+        File folder = chooser.showDialog(table.getScene().getWindow());
+        if (folder != null) {
+            uploadFolder(folder, currentFolder);
+        }
+    }
+
+    /**
+     * Recrée le dossier et son arborescence sous {@code currentFolder}, puis met ses fichiers
+     * en file au fur et à mesure du parcours.
+     */
+    public void uploadFolder(File folder, NodeItem currentFolder) {
+        Integer folderId = currentFolder != null ? currentFolder.getId() : null;
+        System.out.println("Upload du dossier " + folder + " vers le dossier " + folderId);
+        showTransfers();
         
-        javafx.concurrent.Task<Integer> uploadTask = new javafx.concurrent.Task<>() {
-            @Override
-            protected Integer call() throws Exception {
-                System.out.println("\n=== Upload Task.call() exécutée ===");
-                System.out.println("Thread: " + Thread.currentThread().getName());
-                System.out.println("Appel apiClient.uploadFile()");
-                
-                try {
-                    Integer result = apiClient.uploadFile(file, folderId);
-                    System.out.println("Résultat: " + result);
-                    return result;
-                } catch (Exception e) {
-                    System.err.println("Exception dans Upload Task.call(): " + e.getMessage());
-                    e.printStackTrace();
-                    throw e;
-                }
+        // Les fichiers arrivent depuis le parcours et le dispatcher : un seul passage sur le thread FX
+        // à la fois les verse dans la file, par lots
+        ConcurrentLinkedQueue<Map.Entry<File, Integer>> readyFiles = new ConcurrentLinkedQueue<>();
+        AtomicBoolean flushScheduled = new AtomicBoolean();
+        Runnable flush = () -> {
+            flushScheduled.set(false);
+            Map.Entry<File, Integer> entry;
+            while ((entry = readyFiles.poll()) != null) {
+                enqueueUpload(entry.getKey(), entry.getValue(), TransferItem.Priority.NORMAL);
             }
         };
         
-        uploadTask.setOnSucceeded(event -> {
-            System.out.println("\n=== Upload Task SUCCEEDED ===");
-            progressAlert.close();
-            
-            Integer fileId = uploadTask.getValue();
-            System.out.println("ID du fichier: " + fileId);
-            
-            Alert success = new Alert(Alert.AlertType.INFORMATION);
-            success.setTitle("Upload réussi");
-            success.setHeaderText("Fichier uploadé avec succès");
-            success.setContentText("Le fichier '" + file.getName() + "' a été uploadé.\n" +
-                                  (fileId != null ? "ID: " + fileId : ""));
-            success.showAndWait();
-            
-            System.out.println("Rafraîchissement de l'affichage...");
-            refreshCallback.run();
+        FolderUploader uploader = new FolderUploader(apiClient, folder, folderId, (file, parentId) -> {
+            readyFiles.add(Map.entry(file, parentId));
+            if (flushScheduled.compareAndSet(false, true)) {
+                Platform.runLater(flush);
+            }
         });
-        
-        uploadTask.setOnFailed(event -> {
-            System.err.println("\n=== Upload Task FAILED ===");
-            progressAlert.close();
-            
-            Throwable exception = uploadTask.getException();
-            System.err.println("Exception: " + (exception != null ? exception.getClass().getName() : "null"));
-            System.err.println("Message: " + (exception != null ? exception.getMessage() : "null"));
-            
-            String errorMessage = "Erreur lors de l'upload";
-            
-            if (exception != null) {
-                exception.printStackTrace();
-                String exMsg = exception.getMessage();
-                
-                if (exMsg != null) {
-                    if (exMsg.contains("413")) {
-                        errorMessage = "Fichier trop volumineux.\nLa taille maximale autorisée est dépassée.";
-                    } else if (exMsg.contains("415")) {
-                        errorMessage = "Type de fichier non autorisé.";
-                    } else if (exMsg.contains("507")) {
-                        errorMessage = "Espace de stockage insuffisant.";
-                    } else if (exMsg.contains("401")) {
-                        errorMessage = "Session expirée. Veuillez vous reconnecter.";
-                    } else if (exMsg.contains("ConnectException") || exMsg.contains("Connection refused")) {
-                        errorMessage = "Impossible de contacter le serveur.\nVérifiez que le backend est démarré.";
-                    } else if (exMsg.contains("timeout")) {
-                        errorMessage = "Délai d'attente dépassé.\nLe fichier est peut-être trop volumineux.";
-                    } else {
-                        errorMessage = "Erreur: " + exMsg;
-                    }
-                }
+        FxFutures.onFxThread(uploader.start(), result -> {
+            System.out.println("Dossier " + folder.getName() + " parcouru : " + result.getFoldersCreated()
+                + " dossier(s) créé(s), " + result.getFilesQueued() + " fichier(s) en file, "
+                + result.getFilesSkipped() + " ignoré(s)");
+            // Les nouveaux dossiers apparaissent dans l'arborescence sans attendre la fin des uploads
+            refreshCallback.run();
+            if (!result.getErrors().isEmpty()) {
+                showFolderErrors(folder, result);
             }
-            
-            Alert error = new Alert(Alert.AlertType.ERROR);
-            error.setTitle("Erreur d'upload");
-            error.setHeaderText("Impossible d'uploader le fichier");
-            error.setContentText(errorMessage);
-            error.showAndWait();
+        }, error -> {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Erreur d'upload");
+            alert.setHeaderText("Impossible d'envoyer le dossier " + folder.getName());
+            alert.setContentText(error.getMessage());
+            alert.show();
         });
+    }
+
+    private void showFolderErrors(File folder, FolderUploader.Result result) {
+        List<String> errors = result.getErrors();
+        StringBuilder details = new StringBuilder();
+        for (int i = 0; i < Math.min(MAX_REPORTED_FAILURES, errors.size()); i++) {
+            details.append("- ").append(errors.get(i).replace('\n', ' ')).append("\n");
+        }
+        if (errors.size() > MAX_REPORTED_FAILURES) {
+            details.append("… et ").append(errors.size() - MAX_REPORTED_FAILURES).append(" autre(s)\n");
+        }
+        details.append("\n").append(result.getFilesSkipped()).append(" fichier(s) n'ont pas été envoyés.");
+        
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Upload du dossier incomplet");
+        alert.setHeaderText("Une partie de " + folder.getName() + " n'a pas pu être recréée");
+        alert.setContentText(details.toString());
+        alert.show();
+    }
+
+    /**
+     * Envoie un fichier local comme nouvelle version de {@code target} : seuls les blocs
+     * qui diffèrent de la version actuelle partent sur le réseau.
+     */
+    public void handleUploadNewVersion(FileEntry target) {
+        if (target == null || target.getId() == null) return;
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Choisir la nouvelle version de " + target.getName());
+        File file = chooser.showOpenDialog(table.getScene().getWindow());
+        if (file == null) return;
+
+        System.out.println("Nouvelle version de " + target.getName() + " (v" + target.getCurrentVersion()
+            + ") depuis " + file);
+        queue.add(TransferItem.Direction.UPLOAD, target.getName() + " (nouvelle version)", file.length(), TransferItem.Priority.NORMAL,
+            onBytes -> apiClient.uploadVersionDeltaAsync(file, target.getId(), onBytes));
+        showTransfers();
+    }
+
+    /**
+     * Affiche la fenêtre des transferts.
+     */
+    void showTransfers() {
+        transferController.show(table.getScene() != null ? table.getScene().getWindow() : null);
+    }
+
+    private TransferItem enqueueUpload(File file, Integer folderId, TransferItem.Priority priority) {
+        // Contenu déjà sur le serveur : lié sans transfert ; sinon envoyé, découpé en blocs s'il est gros
+        return queue.add(TransferItem.Direction.UPLOAD, file.getName(), file.length(), priority,
+            onBytes -> apiClient.uploadFileDedupAsync(file, folderId, onBytes));
+    }
+
+    private void uploadFinished(TransferItem item) {
+        if (item.getDirection() != TransferItem.Direction.UPLOAD) {
+            return;
+        }
+        if (item.getState() == TransferItem.State.COMPLETED) {
+            // Les rechargements sont regroupés par MainController : pas d'avalanche sur un gros lot
+            refreshCallback.run();
+        } else if (item.getState() == TransferItem.State.FAILED) {
+            item.setErrorMessage(describeUploadError(item.getFailure()));
+            failures.add(item);
+        }
         
-        Thread thread = new Thread(uploadTask, "upload-task-thread");
-        thread.setDaemon(true);
-        System.out.println("Démarrage du thread upload...");
-        thread.start();
-        System.out.println("Thread upload démarré");
+        if (queue.count(TransferItem.Direction.UPLOAD, TransferItem.State.RUNNING) == 0
+                && queue.count(TransferItem.Direction.UPLOAD, TransferItem.State.QUEUED) == 0
+                && !failures.isEmpty()) {
+            showFailures();
+        }
+    }
+
+    /**
+     * Bilan unique des échecs une fois la file vidée, plutôt qu'une alerte par fichier.
+     */
+    private void showFailures() {
+        StringBuilder details = new StringBuilder();
+        for (int i = 0; i < Math.min(MAX_REPORTED_FAILURES, failures.size()); i++) {
+            TransferItem item = failures.get(i);
+            details.append("- ").append(item.getName()).append(" : ")
+                .append(item.getErrorMessage().replace('\n', ' ')).append("\n");
+        }
+        if (failures.size() > MAX_REPORTED_FAILURES) {
+            details.append("… et ").append(failures.size() - MAX_REPORTED_FAILURES).append(" autre(s)\n");
+        }
+        details.append("\nLes envois en échec peuvent être relancés depuis la fenêtre des transferts.");
+        
+        Alert error = new Alert(Alert.AlertType.ERROR);
+        error.setTitle("Erreur d'upload");
+        error.setHeaderText(failures.size() + " fichier(s) n'ont pas pu être uploadés");
+        error.setContentText(details.toString());
+        failures.clear();
+        error.show();
+    }
+
+    /**
+     * Propose de reprendre les uploads interrompus (coupure réseau, fermeture de l'application).
+     */
+    public void resumePendingUploads() {
+        List<UploadSession> pending = apiClient.getPendingUploads();
+        if (pending.isEmpty()) return;
+
+        StringBuilder details = new StringBuilder();
+        for (UploadSession session : pending) {
+            int percentage = session.getFileSize() > 0
+                ? (int) (100 * session.getAcknowledgedBytes() / session.getFileSize()) : 0;
+            details.append("- ").append(session.getFileName()).append(" (").append(percentage).append("%)\n");
+        }
+
+        ButtonType resume = new ButtonType("Reprendre");
+        ButtonType discard = new ButtonType("Abandonner");
+        ButtonType later = new ButtonType("Plus tard", ButtonBar.ButtonData.CANCEL_CLOSE);
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "", resume, discard, later);
+        confirm.setTitle("Uploads interrompus");
+        confirm.setHeaderText(pending.size() + " upload(s) n'ont pas pu se terminer");
+        confirm.setContentText(details + "\nLes blocs déjà envoyés ne seront pas renvoyés.");
+
+        Optional<ButtonType> choice = confirm.showAndWait();
+        if (choice.isEmpty() || choice.get() == later) return;
+        
+        if (choice.get() == discard) {
+            for (UploadSession session : pending) {
+                apiClient.discardUploadAsync(session);
+            }
+            return;
+        }
+        for (UploadSession session : pending) {
+            queue.add(TransferItem.Direction.UPLOAD, session.getFileName(), session.getFileSize(), TransferItem.Priority.NORMAL,
+                onBytes -> apiClient.resumeUploadAsync(session, onBytes));
+        }
+        showTransfers();
+    }
+
+    static String describeUploadError(Throwable exception) {
+        String errorMessage = "Erreur lors de l'upload";
+        if (exception == null) {
+            return errorMessage;
+        }
+        String exMsg = exception.getMessage();
+        if (exMsg != null) {
+            if (exMsg.contains("413")) {
+                errorMessage = "Fichier trop volumineux.\nLa taille maximale autorisée est dépassée.";
+            } else if (exMsg.contains("415")) {
+                errorMessage = "Type de fichier non autorisé.";
+            } else if (exMsg.contains("507")) {
+                errorMessage = "Espace de stockage insuffisant.";
+            } else if (exMsg.contains("401")) {
+                errorMessage = "Session expirée. Veuillez vous reconnecter.";
+            } else if (exMsg.contains("ConnectException") || exMsg.contains("Connection refused")) {
+                errorMessage = "Impossible de contacter le serveur.\nVérifiez que le backend est démarré.";
+            } else if (exMsg.contains("timeout")) {
+                errorMessage = "Délai d'attente dépassé.\nLe fichier est peut-être trop volumineux.";
+            } else {
+                errorMessage = "Erreur: " + exMsg;
+            }
+        }
+        return errorMessage;
     }
 }
@@ -52,9 +52,11 @@ public class VersionController {
     }
 
     private final Runnable refreshCallback;
+    private final DownloadController downloadController;
 
-    public VersionController(Runnable refreshCallback) {
+    public VersionController(Runnable refreshCallback, DownloadController downloadController) {
         this.refreshCallback = refreshCallback;
+        this.downloadController = downloadController;
     }
 
     public void handleVersionHistory(FileEntry selected, TableView<FileEntry> table) {
@@ -223,6 +225,9 @@ public class VersionController {
         
         if (dest != null) {
             System.out.println("Téléchargement de la version " + version.getVersion() + "...");
+            // La version actuelle se télécharge comme le fichier lui-même
+            Integer requested = version.isCurrent() ? null : version.getVersion();
+            downloadController.download(file, requested, version.getSize(), dest, table.getScene().getWindow());
         }
     }
 
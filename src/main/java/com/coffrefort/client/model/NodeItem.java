@@ -7,7 +7,7 @@ import java.util.List;
  * Représente un dossier (noeud) contenant éventuellement des fichiers et des sous-dossiers.
  */
 public class NodeItem {
-    private final String name;
+    private String name;
     private Integer id;
     private Integer parentId;
     private final List<NodeItem> children = new ArrayList<>();
@@ -33,6 +33,7 @@ public class NodeItem {
     }
 
     public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
     public Integer getId() { return id; }
     public void setId(Integer id) { this.id = id; }
     public Integer getParentId() { return parentId; }
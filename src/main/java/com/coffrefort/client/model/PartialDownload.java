@@ -0,0 +1,126 @@
+package com.coffrefort.client.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Téléchargement interrompu : le contenu déjà reçu est dans {@code <destination>.part},
+ * cette description dans le fichier compagnon {@code <destination>.part.json}.
+ *
+ * La reprise n'est possible que si le fichier distant est toujours dans la même version :
+ * la requête de reprise porte l'ETag reçu au premier essai ({@code If-Range}) et le serveur
+ * renvoie tout le contenu si elle ne correspond plus.
+ *
+ * Un téléchargement segmenté remplit le fichier .part (à sa taille finale dès le départ) par
+ * plusieurs plages à la fois : la progression de chacune est alors décrite par {@link Segment}.
+ *
+ * Le contenu complet est comparé à l'empreinte annoncée par le serveur avant d'être renommé
+ * en destination.
+ */
+public class PartialDownload {
+
+    /**
+     * Plage {@code [start, end)} du fichier, dont les {@code written} premiers octets sont écrits.
+     */
+    public static class Segment {
+        private long start;
+        private long end;
+        private long written;
+
+        public Segment(long start, long end, long written) {
+            this.start = start;
+            this.end = end;
+            this.written = written;
+        }
+
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+        public void setEnd(long end) { this.end = end; }
+        public long getWritten() { return written; }
+        public void setWritten(long written) { this.written = written; }
+
+        /** Position du prochain octet à écrire */
+        public long getPosition() { return start + written; }
+        public long getRemaining() { return end - start - written; }
+    }
+
+    private int fileId;
+    private String fileName;
+    /** Version demandée explicitement, null pour la version actuelle */
+    private Integer requestedVersion;
+    /** Version du contenu en cours de réception */
+    private int version;
+    private long size;
+    private String etag;
+    /** Empreinte SHA-256 annoncée par le serveur (hexadécimal), null si inconnue */
+    private String checksum;
+    private String destinationPath;
+    private List<Segment> segments = new ArrayList<>();
+
+    public int getFileId() { return fileId; }
+    public void setFileId(int fileId) { this.fileId = fileId; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public Integer getRequestedVersion() { return requestedVersion; }
+    public void setRequestedVersion(Integer requestedVersion) { this.requestedVersion = requestedVersion; }
+
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public String getEtag() { return etag; }
+    public void setEtag(String etag) { this.etag = etag; }
+
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+
+    public String getDestinationPath() { return destinationPath; }
+    public void setDestinationPath(String destinationPath) { this.destinationPath = destinationPath; }
+
+    /**
+     * @return plages d'un téléchargement segmenté ; vide pour un téléchargement séquentiel
+     */
+    public List<Segment> getSegments() { return segments; }
+    public void setSegments(List<Segment> segments) { this.segments = segments; }
+
+    public File getDestination() {
+        return new File(destinationPath);
+    }
+
+    public File getPartFile() {
+        return new File(destinationPath + ".part");
+    }
+
+    public File getSidecarFile() {
+        return new File(destinationPath + ".part.json");
+    }
+
+    /**
+     * @return octets déjà reçus : taille actuelle du fichier .part, ou somme des plages écrites
+     */
+    public long getReceivedBytes() {
+        if (segments.isEmpty()) {
+            return getPartFile().length();
+        }
+        long received = 0;
+        for (Segment segment : segments) {
+            received += segment.getWritten();
+        }
+        return received;
+    }
+
+    @Override
+    public String toString() {
+        return "PartialDownload{" +
+                "fileId=" + fileId +
+                ", version=" + version +
+                ", received=" + getReceivedBytes() + "/" + size +
+                ", destination='" + destinationPath + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,140 @@
+package com.coffrefort.client.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Un transfert de la file d'attente (voir {@code TransferQueue}).
+ *
+ * L'état et la priorité ne sont modifiés que sur le thread JavaFX ; le nombre d'octets
+ * transférés est mis à jour depuis les threads réseau et lu par l'interface.
+ */
+public class TransferItem {
+
+    public enum Direction {
+        UPLOAD("Envoi"), DOWNLOAD("Réception");
+
+        private final String label;
+
+        Direction(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public enum Priority {
+        HIGH("Haute"), NORMAL("Normale"), LOW("Basse");
+
+        private final String label;
+
+        Priority(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public enum State {
+        QUEUED("En attente"),
+        RUNNING("En cours"),
+        PAUSED("En pause"),
+        COMPLETED("Terminé"),
+        FAILED("Échec"),
+        CANCELLED("Annulé");
+
+        private final String label;
+
+        State(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final Direction direction;
+    private final String name;
+    private final long totalBytes;
+    private final AtomicLong transferredBytes = new AtomicLong();
+    private Priority priority;
+    private State state = State.QUEUED;
+    private long order;
+    private volatile int attempt;
+    private Throwable failure;
+    private String errorMessage;
+
+    public TransferItem(Direction direction, String name, long totalBytes, Priority priority) {
+        this.direction = direction;
+        this.name = name;
+        this.totalBytes = totalBytes;
+        this.priority = priority;
+    }
+
+    public Direction getDirection() { return direction; }
+    public String getName() { return name; }
+    public long getTotalBytes() { return totalBytes; }
+
+    public long getTransferredBytes() { return transferredBytes.get(); }
+    public void setTransferredBytes(long bytes) { transferredBytes.set(bytes); }
+
+    /**
+     * @return la valeur précédente
+     */
+    public long exchangeTransferredBytes(long bytes) {
+        return transferredBytes.getAndSet(bytes);
+    }
+
+    public double getProgress() {
+        return totalBytes > 0 ? Math.min(1.0, (double) transferredBytes.get() / totalBytes) : 0;
+    }
+
+    public Priority getPriority() { return priority; }
+    public void setPriority(Priority priority) { this.priority = priority; }
+
+    public State getState() { return state; }
+    public void setState(State state) { this.state = state; }
+
+    /** Rang dans la file, à priorité égale (le plus petit passe en premier) */
+    public long getOrder() { return order; }
+    public void setOrder(long order) { this.order = order; }
+
+    /** Numéro de l'envoi en cours : les notifications d'un envoi interrompu sont ignorées */
+    public int getAttempt() { return attempt; }
+    public int nextAttempt() { return ++attempt; }
+
+    public Throwable getFailure() { return failure; }
+    public void setFailure(Throwable failure) { this.failure = failure; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    /**
+     * @return true si le transfert peut encore partir (en attente ou en pause)
+     */
+    public boolean isPending() {
+        return state == State.QUEUED || state == State.PAUSED;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferItem{" +
+                "direction=" + direction +
+                ", name='" + name + '\'' +
+                ", state=" + state +
+                ", priority=" + priority +
+                ", transferred=" + transferredBytes.get() + "/" + totalBytes +
+                '}';
+    }
+}
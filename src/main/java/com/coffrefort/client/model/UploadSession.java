@@ -0,0 +1,123 @@
+package com.coffrefort.client.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Upload découpé en blocs, en cours côté serveur.
+ *
+ * Enregistrée sur disque après chaque bloc accepté par le serveur : un upload
+ * interrompu (coupure réseau, fermeture de l'application) reprend au premier bloc manquant.
+ * Le fichier local doit être inchangé (même taille, même date de modification) pour reprendre.
+ */
+public class UploadSession {
+    private String uploadId;
+    private String filePath;
+    private long fileSize;
+    private long lastModified;
+    private Integer folderId;
+    private int chunkSize;
+    private final SortedSet<Integer> acknowledgedChunks = new TreeSet<>();
+
+    public UploadSession() {
+        // Pour la relecture depuis le disque (UploadSessionStore)
+    }
+
+    public UploadSession(String uploadId, File file, Integer folderId, int chunkSize) {
+        this.uploadId = uploadId;
+        this.filePath = file.getAbsolutePath();
+        this.fileSize = file.length();
+        this.lastModified = file.lastModified();
+        this.folderId = folderId;
+        this.chunkSize = chunkSize;
+    }
+
+    public String getUploadId() { return uploadId; }
+    public void setUploadId(String uploadId) { this.uploadId = uploadId; }
+
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+
+    public long getFileSize() { return fileSize; }
+    public void setFileSize(long fileSize) { this.fileSize = fileSize; }
+
+    public long getLastModified() { return lastModified; }
+    public void setLastModified(long lastModified) { this.lastModified = lastModified; }
+
+    public Integer getFolderId() { return folderId; }
+    public void setFolderId(Integer folderId) { this.folderId = folderId; }
+
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+
+    public synchronized List<Integer> getAcknowledgedChunks() {
+        return new ArrayList<>(acknowledgedChunks);
+    }
+
+    public synchronized void setAcknowledgedChunks(List<Integer> chunks) {
+        acknowledgedChunks.clear();
+        acknowledgedChunks.addAll(chunks);
+    }
+
+    public File getFile() {
+        return new File(filePath);
+    }
+
+    public String getFileName() {
+        return getFile().getName();
+    }
+
+    public int getChunkCount() {
+        return chunkSize <= 0 ? 0 : (int) ((fileSize + chunkSize - 1) / chunkSize);
+    }
+
+    public long getChunkOffset(int index) {
+        return (long) index * chunkSize;
+    }
+
+    public int getChunkLength(int index) {
+        return (int) Math.min(chunkSize, fileSize - getChunkOffset(index));
+    }
+
+    public synchronized void acknowledge(int index) {
+        acknowledgedChunks.add(index);
+    }
+
+    public synchronized boolean isAcknowledged(int index) {
+        return acknowledgedChunks.contains(index);
+    }
+
+    /**
+     * @return les indices des blocs pas encore acceptés par le serveur, dans l'ordre
+     */
+    public synchronized List<Integer> getMissingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < getChunkCount(); i++) {
+            if (!acknowledgedChunks.contains(i)) {
+                missing.add(i);
+            }
+        }
+        return missing;
+    }
+
+    public synchronized long getAcknowledgedBytes() {
+        long bytes = 0;
+        for (int index : acknowledgedChunks) {
+            bytes += getChunkLength(index);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return true si le fichier local est toujours celui de la session
+     */
+    public boolean matches(File file) {
+        return file.exists()
+            && file.getAbsolutePath().equals(filePath)
+            && file.length() == fileSize
+            && file.lastModified() == lastModified;
+    }
+}
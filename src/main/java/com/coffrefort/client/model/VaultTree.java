@@ -0,0 +1,263 @@
+package com.coffrefort.client.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Arborescence du coffre construite au fur et à mesure de l'arrivée des dossiers et fichiers.
+ *
+ * Les éléments peuvent arriver dans n'importe quel ordre (pagination, flux) :
+ * - un sous-dossier dont le parent n'est pas encore rattaché est mis en attente ;
+ * - un fichier dont le dossier n'est pas encore connu est mis en attente.
+ * À l'appel de {@link #complete()}, les dossiers dont le parent n'est jamais arrivé
+ * sont rattachés à la racine, les fichiers orphelins sont ignorés.
+ *
+ * Une fois chargée, l'arborescence peut être mise à jour de façon incrémentale
+ * (création, modification, suppression) à partir d'un flux de changements.
+ *
+ * Cette classe n'est pas thread-safe : elle doit être alimentée depuis un seul thread
+ * (le thread JavaFX dans l'interface).
+ */
+public class VaultTree {
+
+    /**
+     * Notifié à chaque dossier rattaché à l'arborescence.
+     */
+    public interface Listener {
+        /**
+         * @param folder dossier ajouté
+         * @param parent dossier parent, ou null pour un dossier racine
+         */
+        void folderAdded(NodeItem folder, NodeItem parent);
+    }
+
+    private final List<NodeItem> roots = new ArrayList<>();
+    private final Map<Integer, NodeItem> foldersById = new HashMap<>();
+    private final Map<Integer, List<NodeItem>> waitingForParent = new HashMap<>();
+    private final Map<Integer, List<FileEntry>> waitingForFolder = new HashMap<>();
+    private final Set<Integer> attachedIds = new HashSet<>();
+    /** Dossier contenant chaque fichier (par ID de fichier). */
+    private final Map<Integer, NodeItem> folderOfFile = new HashMap<>();
+    private Listener listener;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Ajoute un dossier ; il est rattaché dès que son parent est lui-même rattaché.
+     */
+    public NodeItem addFolder(Integer id, String name, Integer parentId) {
+        NodeItem node = NodeItem.folder(name);
+        node.setId(id);
+        node.setParentId(parentId);
+        if (id != null) {
+            foldersById.put(id, node);
+            // Rattacher les fichiers qui attendaient ce dossier
+            List<FileEntry> files = waitingForFolder.remove(id);
+            if (files != null) {
+                node.getFiles().addAll(files);
+                for (FileEntry file : files) {
+                    if (file.getId() != null) {
+                        folderOfFile.put(file.getId(), node);
+                    }
+                }
+            }
+        }
+
+        if (parentId == null) {
+            attach(node, null);
+        } else if (attachedIds.contains(parentId)) {
+            attach(node, foldersById.get(parentId));
+        } else {
+            waitingForParent.computeIfAbsent(parentId, k -> new ArrayList<>()).add(node);
+        }
+        return node;
+    }
+
+    /**
+     * Ajoute un fichier dans son dossier.
+     * @return le dossier qui a reçu le fichier, ou null s'il est (encore) inconnu
+     */
+    public NodeItem addFile(Integer folderId, FileEntry file) {
+        if (folderId == null) {
+            // Fichier sans dossier : ignoré, comme dans le chargement complet
+            return null;
+        }
+        NodeItem folder = foldersById.get(folderId);
+        if (folder != null) {
+            folder.getFiles().add(file);
+            if (file.getId() != null) {
+                folderOfFile.put(file.getId(), folder);
+            }
+            return folder;
+        }
+        waitingForFolder.computeIfAbsent(folderId, k -> new ArrayList<>()).add(file);
+        return null;
+    }
+
+    /**
+     * Termine le chargement : les dossiers dont le parent est introuvable deviennent des racines.
+     */
+    public void complete() {
+        while (!waitingForParent.isEmpty()) {
+            // D'abord les dossiers dont le parent n'existe pas, leurs descendants suivent ;
+            // ce qui reste ensuite correspond à des références circulaires
+            Integer parentId = waitingForParent.keySet().stream()
+                .filter(key -> !foldersById.containsKey(key))
+                .findFirst()
+                .orElse(waitingForParent.keySet().iterator().next());
+            for (NodeItem orphan : waitingForParent.remove(parentId)) {
+                attach(orphan, null);
+            }
+        }
+        waitingForFolder.clear();
+    }
+
+    /**
+     * Crée ou met à jour un dossier (renommage, déplacement).
+     * @return le dossier à jour
+     */
+    public NodeItem upsertFolder(Integer id, String name, Integer parentId) {
+        NodeItem existing = findFolder(id);
+        if (existing == null) {
+            NodeItem node = addFolder(id, name, parentId);
+            // En mise à jour incrémentale, pas d'attente : parent inconnu = racine
+            complete();
+            return node;
+        }
+
+        existing.setName(name);
+        if (!Objects.equals(existing.getParentId(), parentId)) {
+            detach(existing);
+            existing.setParentId(parentId);
+            NodeItem parent = findFolder(parentId);
+            if (parent != null && parent != existing && !isDescendant(parent, existing)) {
+                parent.addChild(existing);
+            } else {
+                roots.add(existing);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Crée, met à jour ou déplace un fichier.
+     * @return le dossier qui contient le fichier, ou null si son dossier est inconnu
+     */
+    public NodeItem upsertFile(Integer folderId, FileEntry file) {
+        if (file.getId() != null) {
+            NodeItem previousFolder = folderOfFile.get(file.getId());
+            NodeItem newFolder = findFolder(folderId);
+            if (previousFolder != null && previousFolder == newFolder) {
+                List<FileEntry> files = previousFolder.getFiles();
+                for (int i = 0; i < files.size(); i++) {
+                    if (file.getId().equals(files.get(i).getId())) {
+                        files.set(i, file);
+                        return previousFolder;
+                    }
+                }
+            }
+            removeFile(file.getId());
+        }
+        return addFile(folderId, file);
+    }
+
+    /**
+     * Supprime un fichier.
+     * @return le dossier qui le contenait, ou null s'il était inconnu
+     */
+    public NodeItem removeFile(Integer fileId) {
+        NodeItem folder = fileId == null ? null : folderOfFile.remove(fileId);
+        if (folder != null) {
+            folder.getFiles().removeIf(f -> fileId.equals(f.getId()));
+        }
+        return folder;
+    }
+
+    /**
+     * Supprime un dossier avec ses sous-dossiers et leurs fichiers.
+     * @return le dossier supprimé, ou null s'il était inconnu
+     */
+    public NodeItem removeFolder(Integer folderId) {
+        NodeItem folder = findFolder(folderId);
+        if (folder == null) {
+            return null;
+        }
+        detach(folder);
+        forget(folder);
+        return folder;
+    }
+
+    public List<NodeItem> getRoots() { return roots; }
+
+    public NodeItem findFolder(Integer id) {
+        return id == null ? null : foldersById.get(id);
+    }
+
+    /**
+     * Retire un dossier de son parent (ou de la racine).
+     */
+    private void detach(NodeItem node) {
+        NodeItem parent = findFolder(node.getParentId());
+        if (parent == null || !parent.getChildren().remove(node)) {
+            roots.remove(node);
+        }
+    }
+
+    /**
+     * Retire un dossier et tout son contenu des index.
+     */
+    private void forget(NodeItem node) {
+        if (node.getId() != null) {
+            foldersById.remove(node.getId());
+            attachedIds.remove(node.getId());
+        }
+        for (FileEntry file : node.getFiles()) {
+            if (file.getId() != null) {
+                folderOfFile.remove(file.getId());
+            }
+        }
+        for (NodeItem child : node.getChildren()) {
+            forget(child);
+        }
+    }
+
+    private boolean isDescendant(NodeItem candidate, NodeItem ancestor) {
+        for (NodeItem child : ancestor.getChildren()) {
+            if (child == candidate || isDescendant(candidate, child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void attach(NodeItem node, NodeItem parent) {
+        if (parent == null) {
+            roots.add(node);
+        } else {
+            parent.addChild(node);
+        }
+        if (node.getId() != null) {
+            attachedIds.add(node.getId());
+        }
+        if (listener != null) {
+            listener.folderAdded(node, parent);
+        }
+
+        // Les sous-dossiers qui attendaient ce dossier peuvent maintenant être rattachés
+        if (node.getId() != null) {
+            List<NodeItem> children = waitingForParent.remove(node.getId());
+            if (children != null) {
+                for (NodeItem child : children) {
+                    attach(child, node);
+                }
+            }
+        }
+    }
+}
@@ -27,6 +27,17 @@ public class ApiTester {
         }
         System.out.println("Base URL: " + apiClient.getBaseUrl());
         
+        System.out.print("Taille de page des listes [0 = sans pagination]: ");
+        String pageSize = scanner.nextLine().trim();
+        if (!pageSize.isEmpty()) {
+            try {
+                apiClient.setPageSize(Integer.parseInt(pageSize));
+            } catch (NumberFormatException e) {
+                System.out.println("Taille invalide, valeur par défaut conservée");
+            }
+        }
+        System.out.println("Taille de page: " + apiClient.getPageSize());
+        
         // Login
         System.out.println("\n--- AUTHENTIFICATION ---");
         System.out.print("Email: ");
@@ -0,0 +1,47 @@
+package com.coffrefort.client.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+/**
+ * Petits utilitaires pour consommer les {@link CompletableFuture} de l'ApiClient
+ * depuis l'interface JavaFX (les callbacks sont toujours exécutés sur le thread FX).
+ */
+public final class FxFutures {
+
+    private FxFutures() {
+    }
+
+    /**
+     * Exécute {@code onSuccess} ou {@code onFailure} sur le thread JavaFX
+     * lorsque le future se termine. L'exception transmise est déjà "déballée".
+     */
+    public static <T> void onFxThread(CompletableFuture<T> future,
+                                      Consumer<T> onSuccess,
+                                      Consumer<Throwable> onFailure) {
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onFailure.accept(unwrap(error));
+            }
+        }));
+    }
+
+    /**
+     * Retire les enveloppes {@link CompletionException} / {@link ExecutionException}
+     * ajoutées par la composition de futures.
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+}
@@ -0,0 +1,68 @@
+package com.coffrefort.client.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Sommes de contrôle des blocs pour le transfert différentiel (à la rsync), partagées par
+ * le client et le serveur de substitution.
+ *
+ * La somme faible se met à jour en temps constant quand la fenêtre avance d'un octet :
+ * le client peut chercher les blocs connus du serveur à toutes les positions du fichier.
+ * La somme forte (64 premiers bits d'un SHA-256) confirme les correspondances trouvées.
+ */
+public final class RollingChecksum {
+
+    private final MessageDigest digest;
+    private int a;
+    private int b;
+    private int length;
+
+    public RollingChecksum() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Algorithme obligatoire sur toute JVM
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Calcule la somme faible de la fenêtre {@code data[offset, offset + length)}.
+     */
+    public void reset(byte[] data, int offset, int length) {
+        int sumA = 0;
+        int sumB = 0;
+        for (int i = 0; i < length; i++) {
+            int x = data[offset + i] & 0xff;
+            sumA += x;
+            sumB += (length - i) * x;
+        }
+        this.a = sumA & 0xffff;
+        this.b = sumB & 0xffff;
+        this.length = length;
+    }
+
+    /**
+     * Avance la fenêtre d'un octet : {@code out} en sort, {@code in} y entre.
+     */
+    public void roll(byte out, byte in) {
+        int x = out & 0xff;
+        a = (a - x + (in & 0xff)) & 0xffff;
+        b = (b - length * x + a) & 0xffff;
+    }
+
+    public int weak() {
+        return a | (b << 16);
+    }
+
+    public long strong(byte[] data, int offset, int length) {
+        digest.update(data, offset, length);
+        byte[] hash = digest.digest();
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (hash[i] & 0xff);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,1041 @@
+package com.coffrefort.client.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serveur local de substitution, en mémoire, pour tester le client sans backend.
+ * Implémente le sous-ensemble de l'API utilisé par {@code ApiClient}.
+ *
+ * Lancement : {@code StandInServer [--port 8888] [--folders 200] [--files 20000] [--latency 0] [--failure-rate 0]
+ * [--connection-rate 0] [--corruption-rate 0]}
+ * - tout couple email / mot de passe est accepté ;
+ * - {@code GET /folders} et {@code GET /files} acceptent {@code ?limit=N&cursor=...}
+ *   et renvoient alors {@code next_cursor} ;
+ * - {@code GET /changes/token} et {@code GET /changes?since=...} exposent un journal des modifications
+ *   (410 si le jeton est plus ancien que le journal conservé) ;
+ * - les listes portent un ETag (révision des données) et répondent 304 à un If-None-Match identique ;
+ * - {@code --latency} ajoute un délai (ms) à chaque réponse pour simuler un lien lent ;
+ * - {@code --failure-rate} (0 à 1) fait échouer une partie des requêtes en 503 pour tester les nouveaux essais ;
+ * - {@code --connection-rate} (Ko/s) limite le débit de chaque téléchargement, comme une connexion
+ *   longue distance dont la fenêtre TCP borne le débit ;
+ * - {@code --corruption-rate} (0 à 1) altère un octet d'une partie des contenus transférés (reçus
+ *   ou envoyés), pour tester la vérification des empreintes ;
+ * - un POST rejoué avec le même {@code Idempotency-Key} renvoie la réponse du premier traitement ;
+ * - uploads reprenables : {@code POST /uploads}, {@code PUT /uploads/{id}/chunks/{n}},
+ *   {@code GET /uploads/{id}} (blocs reçus), {@code POST /uploads/{id}/commit}, {@code DELETE /uploads/{id}} ;
+ * - déduplication : {@code POST /files/link} crée un fichier à partir du contenu d'un fichier existant
+ *   de même SHA-256, ou répond 404 ;
+ * - {@code GET /files/{id}/download[?version=N]} renvoie le contenu ; seule la version actuelle est conservée ;
+ *   l'ETag identifie fichier et version, {@code Range} (une seule plage) répond 206 et {@code If-Range}
+ *   périmé renvoie tout le contenu ; l'empreinte SHA-256 du contenu complet est annoncée dans
+ *   {@code Repr-Digest}, celle de la plage dans {@code Content-Digest} si la requête porte
+ *   {@code Want-Content-Digest} ;
+ * - les réponses aux envois (fichier, bloc, assemblage) portent le {@code sha256} du contenu reçu ;
+ * - nouvelles versions par delta : {@code GET /files/{id}/signatures} (sommes des blocs de la version
+ *   actuelle, en binaire) et {@code POST /files/{id}/delta} (409 si {@code X-Base-Version} n'est plus
+ *   la version actuelle) ;
+ * - les corps envoyés en {@code Content-Encoding: gzip} sont décompressés avant traitement.
+ */
+public class StandInServer {
+
+    private static final int MAX_CHANGE_LOG = 10000;
+    private static final int CHANGES_PAGE_SIZE = 1000;
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final NavigableMap<Integer, Folder> folders = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Integer, StoredFile> files = new ConcurrentSkipListMap<>();
+    private final Map<String, PendingUpload> uploads = new ConcurrentHashMap<>();
+    private final AtomicInteger nextFolderId = new AtomicInteger(1);
+    private final AtomicInteger nextFileId = new AtomicInteger(1);
+    /** Incrémentée à chaque modification : sert de jeton de synchronisation et de base aux ETag. */
+    private final AtomicLong revision = new AtomicLong(1);
+    private final List<ChangeRecord> changeLog = new ArrayList<>();
+    /** Réponses des créations déjà traitées, par clé d'idempotence. */
+    private final Map<String, Map<String, Object>> idempotentResponses = new ConcurrentHashMap<>();
+    private final int latencyMs;
+    private volatile double failureRate;
+    private volatile long connectionRate;
+    private volatile double corruptionRate;
+    private HttpServer server;
+
+    public StandInServer(int latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    /**
+     * @param failureRate proportion de requêtes (hors connexion) qui échouent en 503
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * @param connectionRate débit maximal de chaque réponse de téléchargement, en octets/s (0 = illimité)
+     */
+    public void setConnectionRate(long connectionRate) {
+        this.connectionRate = connectionRate;
+    }
+
+    /**
+     * @param corruptionRate proportion des contenus transférés dont un octet est altéré
+     */
+    public void setCorruptionRate(double corruptionRate) {
+        this.corruptionRate = corruptionRate;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        int port = Integer.parseInt(options.getOrDefault("port", "8888"));
+        int folderCount = Integer.parseInt(options.getOrDefault("folders", "200"));
+        int fileCount = Integer.parseInt(options.getOrDefault("files", "20000"));
+        int latency = Integer.parseInt(options.getOrDefault("latency", "0"));
+        double failureRate = Double.parseDouble(options.getOrDefault("failure-rate", "0"));
+        long connectionRate = Long.parseLong(options.getOrDefault("connection-rate", "0")) * 1024;
+        double corruptionRate = Double.parseDouble(options.getOrDefault("corruption-rate", "0"));
+
+        StandInServer standIn = new StandInServer(latency);
+        standIn.setFailureRate(failureRate);
+        standIn.setConnectionRate(connectionRate);
+        standIn.setCorruptionRate(corruptionRate);
+        standIn.generate(folderCount, fileCount);
+        standIn.start(port);
+        System.out.println("Serveur de substitution démarré sur http://localhost:" + port + "/");
+        System.out.println(folderCount + " dossiers, " + fileCount + " fichiers, latence " + latency + " ms");
+    }
+
+    /**
+     * Génère une arborescence factice : des dossiers sur trois niveaux et des fichiers répartis dedans.
+     */
+    public void generate(int folderCount, int fileCount) {
+        for (int i = 0; i < folderCount; i++) {
+            Integer parentId = i < 10 ? null : 1 + (i * 7) % i;
+            addFolder("Dossier " + (i + 1), parentId);
+        }
+        for (int i = 0; i < fileCount && folderCount > 0; i++) {
+            StoredFile file = new StoredFile();
+            file.id = nextFileId.getAndIncrement();
+            file.name = "fichier-" + file.id + ".txt";
+            file.folderId = 1 + i % folderCount;
+            file.content = ("Contenu du fichier " + file.id + "\n").getBytes(StandardCharsets.UTF_8);
+            file.uploadedAt = Instant.now().minusSeconds(60L * i);
+            files.put(file.id, file);
+        }
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+            route(exchange);
+        } catch (IOException e) {
+            // Client parti en cours de réponse (appel annulé, requête doublée abandonnée)
+            System.out.println("Réponse interrompue: " + exchange.getRequestURI() + " (" + e.getMessage() + ")");
+        } catch (Exception e) {
+            e.printStackTrace();
+            sendJson(exchange, 500, Map.of("error", String.valueOf(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+
+        if (method.equals("HEAD")) {
+            // Préchauffage des connexions par le client : pas de corps
+            exchange.sendResponseHeaders(204, -1);
+            return;
+        }
+        if (path[0].equals("auth") && path.length == 2 && path[1].equals("login") && method.equals("POST")) {
+            sendJson(exchange, 200, Map.of("token", UUID.randomUUID().toString()));
+            return;
+        }
+        if (!isAuthorized(exchange)) {
+            sendJson(exchange, 401, Map.of("error", "Unauthorized"));
+            return;
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            sendJson(exchange, 503, Map.of("error", "Indisponible (panne simulée)"));
+            return;
+        }
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        if (encoding != null && !encoding.equalsIgnoreCase("identity")) {
+            if (!encoding.equalsIgnoreCase("gzip")) {
+                sendJson(exchange, 415, Map.of("error", "Content-Encoding non supporté: " + encoding));
+                return;
+            }
+            // Les routes lisent ensuite le corps décompressé (tailles de blocs comprises)
+            exchange.setStreams(new GZIPInputStream(exchange.getRequestBody()), null);
+        }
+        String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        if (method.equals("POST") && idempotencyKey != null && idempotentResponses.containsKey(idempotencyKey)) {
+            sendJson(exchange, 201, idempotentResponses.get(idempotencyKey));
+            return;
+        }
+
+        switch (path[0] + ":" + method + ":" + path.length) {
+            case "folders:GET:1":
+                sendListing(exchange, "folders", folders);
+                break;
+            case "folders:POST:1":
+                createFolder(exchange);
+                break;
+            case "folders:DELETE:2":
+                deleteFolder(exchange, Integer.parseInt(path[1]));
+                break;
+            case "files:GET:1":
+                sendListing(exchange, "files", files);
+                break;
+            case "files:POST:1":
+                uploadFile(exchange);
+                break;
+            case "files:POST:2":
+                if (!path[1].equals("link")) {
+                    sendJson(exchange, 404, Map.of("error", "Not found"));
+                    break;
+                }
+                linkFile(exchange);
+                break;
+            case "files:GET:3":
+                if (path[2].equals("download")) {
+                    sendContent(exchange, Integer.parseInt(path[1]));
+                } else if (path[2].equals("signatures")) {
+                    sendSignatures(exchange, Integer.parseInt(path[1]));
+                } else {
+                    sendJson(exchange, 404, Map.of("error", "Not found"));
+                }
+                break;
+            case "files:POST:3":
+                if (!path[2].equals("delta")) {
+                    sendJson(exchange, 404, Map.of("error", "Not found"));
+                    break;
+                }
+                applyDelta(exchange, Integer.parseInt(path[1]));
+                break;
+            case "files:DELETE:2":
+                deleteFile(exchange, Integer.parseInt(path[1]));
+                break;
+            case "uploads:POST:1":
+                openUpload(exchange);
+                break;
+            case "uploads:GET:2":
+                sendUploadStatus(exchange, path[1]);
+                break;
+            case "uploads:DELETE:2":
+                uploads.remove(path[1]);
+                sendJson(exchange, 200, Map.of("deleted", path[1]));
+                break;
+            case "uploads:PUT:4":
+                receiveChunk(exchange, path[1], Integer.parseInt(path[3]));
+                break;
+            case "uploads:POST:3":
+                commitUpload(exchange, path[1]);
+                break;
+            case "changes:GET:1":
+                sendChanges(exchange);
+                break;
+            case "changes:GET:2":
+                sendJson(exchange, 200, Map.of("token", String.valueOf(revision.get())));
+                break;
+            default:
+                sendJson(exchange, 404, Map.of("error", "Not found"));
+        }
+    }
+
+    private boolean isAuthorized(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") && header.length() > 7;
+    }
+
+    /**
+     * Envoie une liste, paginée si {@code limit} est fourni. Le curseur est l'ID du dernier élément envoyé.
+     */
+    private void sendListing(HttpExchange exchange, String key, NavigableMap<Integer, ? extends Listable> source)
+            throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI());
+        int limit = Integer.parseInt(query.getOrDefault("limit", "0"));
+        Integer after = query.containsKey("cursor") ? Integer.valueOf(query.get("cursor")) : null;
+        NavigableMap<Integer, ? extends Listable> view = after == null ? source : source.tailMap(after, false);
+
+        String etag = "\"" + key + "-" + revision.get() + "-" + Integer.toHexString(String.valueOf(exchange.getRequestURI().getRawQuery()).hashCode()) + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", "private, no-cache");
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody();
+             JsonGenerator generator = jsonMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(key);
+            int count = 0;
+            Integer lastId = null;
+            for (Listable item : view.values()) {
+                if (limit > 0 && count == limit) break;
+                item.write(generator);
+                lastId = item.id();
+                count++;
+            }
+            generator.writeEndArray();
+            boolean hasMore = limit > 0 && lastId != null && source.higherKey(lastId) != null;
+            if (hasMore) {
+                generator.writeStringField("next_cursor", String.valueOf(lastId));
+            } else {
+                generator.writeNullField("next_cursor");
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private void recordChange(String op, String type, int id, Listable item) {
+        synchronized (changeLog) {
+            changeLog.add(new ChangeRecord(revision.incrementAndGet(), op, type, id, item));
+            if (changeLog.size() > MAX_CHANGE_LOG) {
+                changeLog.subList(0, changeLog.size() - MAX_CHANGE_LOG).clear();
+            }
+        }
+    }
+
+    /**
+     * Envoie les changements postérieurs au jeton {@code since}, par pages de {@link #CHANGES_PAGE_SIZE}.
+     */
+    private void sendChanges(HttpExchange exchange) throws IOException {
+        String sinceParam = parseQuery(exchange.getRequestURI()).get("since");
+        long since = sinceParam != null ? Long.parseLong(sinceParam) : revision.get();
+        List<ChangeRecord> page = new ArrayList<>();
+        boolean hasMore = false;
+        synchronized (changeLog) {
+            long oldestKnown = changeLog.isEmpty() ? revision.get() : changeLog.get(0).seq - 1;
+            if (since < oldestKnown) {
+                sendJson(exchange, 410, Map.of("error", "Jeton expiré"));
+                return;
+            }
+            for (ChangeRecord record : changeLog) {
+                if (record.seq <= since) continue;
+                if (page.size() == CHANGES_PAGE_SIZE) {
+                    hasMore = true;
+                    break;
+                }
+                page.add(record);
+            }
+        }
+        long nextToken = page.isEmpty() ? Math.max(since, revision.get()) : page.get(page.size() - 1).seq;
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody();
+             JsonGenerator generator = jsonMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("changes");
+            for (ChangeRecord record : page) {
+                generator.writeStartObject();
+                generator.writeStringField("op", record.op);
+                generator.writeStringField("type", record.type);
+                generator.writeNumberField("id", record.id);
+                if (record.item != null) {
+                    generator.writeFieldName(record.type);
+                    record.item.write(generator);
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeStringField("next_token", String.valueOf(nextToken));
+            generator.writeBooleanField("has_more", hasMore);
+            generator.writeEndObject();
+        }
+    }
+
+    private void createFolder(HttpExchange exchange) throws IOException {
+        JsonNode body = jsonMapper.readTree(exchange.getRequestBody());
+        String name = body.path("name").asText("");
+        if (name.isBlank()) {
+            sendJson(exchange, 400, Map.of("error", "Nom invalide"));
+            return;
+        }
+        Integer parentId = body.hasNonNull("parent_id") ? body.get("parent_id").asInt() : null;
+        Folder folder = addFolder(name, parentId);
+        recordChange("upsert", "folder", folder.id, folder);
+        sendCreated(exchange, Map.of("id", folder.id, "name", folder.name));
+    }
+
+    private Folder addFolder(String name, Integer parentId) {
+        Folder folder = new Folder();
+        folder.id = nextFolderId.getAndIncrement();
+        folder.name = name;
+        folder.parentId = parentId;
+        folders.put(folder.id, folder);
+        return folder;
+    }
+
+    private void deleteFolder(HttpExchange exchange, int id) throws IOException {
+        if (folders.remove(id) == null) {
+            sendJson(exchange, 404, Map.of("error", "Dossier introuvable"));
+            return;
+        }
+        files.values().removeIf(file -> file.folderId != null && file.folderId == id);
+        folders.values().removeIf(folder -> folder.parentId != null && folder.parentId == id);
+        recordChange("delete", "folder", id, null);
+        sendJson(exchange, 200, Map.of("deleted", id));
+    }
+
+    private void deleteFile(HttpExchange exchange, int id) throws IOException {
+        if (files.remove(id) == null) {
+            sendJson(exchange, 404, Map.of("error", "Fichier introuvable"));
+            return;
+        }
+        recordChange("delete", "file", id, null);
+        sendJson(exchange, 200, Map.of("deleted", id));
+    }
+
+    /**
+     * Upload multipart minimal : champs {@code file} et {@code folder_id}.
+     */
+    private void uploadFile(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null || !contentType.contains("boundary=")) {
+            sendJson(exchange, 400, Map.of("error", "multipart/form-data attendu"));
+            return;
+        }
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + 9);
+        Map<String, Part> parts = parseMultipart(readAll(exchange.getRequestBody()), boundary);
+        Part filePart = parts.get("file");
+        if (filePart == null) {
+            sendJson(exchange, 400, Map.of("error", "Champ 'file' manquant"));
+            return;
+        }
+
+        StoredFile file = new StoredFile();
+        file.id = nextFileId.getAndIncrement();
+        file.name = filePart.filename != null ? filePart.filename : "sans-nom";
+        file.content = corrupt(filePart.content, 0, filePart.content.length);
+        file.uploadedAt = Instant.now();
+        Part folderPart = parts.get("folder_id");
+        file.folderId = folderPart != null ? Integer.valueOf(new String(folderPart.content, StandardCharsets.UTF_8).trim()) : null;
+        files.put(file.id, file);
+        recordChange("upsert", "file", file.id, file);
+        sendCreated(exchange, Map.of("id", file.id, "size", file.content.length, "sha256", file.sha256()));
+    }
+
+    /**
+     * Déduplication : crée un fichier à partir d'un contenu déjà stocké, identifié par son SHA-256.
+     * 404 si aucun fichier du compte n'a ce contenu.
+     */
+    private void linkFile(HttpExchange exchange) throws IOException {
+        JsonNode body = jsonMapper.readTree(exchange.getRequestBody());
+        String sha256 = body.path("sha256").asText("").toLowerCase();
+        long size = body.path("size").asLong(-1);
+        if (sha256.isBlank() || body.path("filename").asText("").isBlank()) {
+            sendJson(exchange, 400, Map.of("error", "sha256 et filename attendus"));
+            return;
+        }
+        StoredFile source = null;
+        for (StoredFile candidate : files.values()) {
+            if (candidate.content.length == size && candidate.sha256().equals(sha256)) {
+                source = candidate;
+                break;
+            }
+        }
+        if (source == null) {
+            sendJson(exchange, 404, Map.of("error", "Contenu inconnu"));
+            return;
+        }
+
+        StoredFile file = new StoredFile();
+        file.id = nextFileId.getAndIncrement();
+        file.name = body.get("filename").asText();
+        file.folderId = body.hasNonNull("folder_id") ? body.get("folder_id").asInt() : null;
+        file.content = source.content;
+        file.sha256 = source.sha256();
+        file.uploadedAt = Instant.now();
+        files.put(file.id, file);
+        recordChange("upsert", "file", file.id, file);
+        sendCreated(exchange, Map.of("id", file.id, "size", file.content.length, "linked", true));
+    }
+
+    private void sendContent(HttpExchange exchange, int fileId) throws IOException {
+        StoredFile file = files.get(fileId);
+        if (file == null) {
+            sendJson(exchange, 404, Map.of("error", "Fichier inconnu"));
+            return;
+        }
+        byte[] content;
+        int version;
+        String sha256;
+        synchronized (file) {
+            content = file.content;
+            version = file.version;
+            sha256 = file.sha256();
+        }
+        String requested = parseQuery(exchange.getRequestURI()).get("version");
+        if (requested != null && Integer.parseInt(requested) != version) {
+            sendJson(exchange, 404, Map.of("error", "Version " + requested + " non conservée"));
+            return;
+        }
+        String etag = "\"f" + fileId + "-v" + version + "\"";
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().set("Repr-Digest",
+            "sha-256=:" + Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256)) + ":");
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        // If-Range différent : le contenu a changé, la plage demandée n'a plus de sens → tout le contenu
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, content.length);
+            if (bounds == null) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+                exchange.sendResponseHeaders(416, -1);
+                exchange.close();
+                return;
+            }
+            int start = (int) bounds[0];
+            int length = (int) (bounds[1] - bounds[0] + 1);
+            exchange.getResponseHeaders().set("Content-Range",
+                "bytes " + bounds[0] + "-" + bounds[1] + "/" + content.length);
+            if (exchange.getRequestHeaders().containsKey("Want-Content-Digest")) {
+                exchange.getResponseHeaders().set("Content-Digest",
+                    "sha-256=:" + Base64.getEncoder().encodeToString(sha256Bytes(content, start, length)) + ":");
+            }
+            exchange.sendResponseHeaders(206, length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                writeContent(out, corrupt(content, start, length), start, length);
+            }
+            return;
+        }
+        // 0 signifierait "longueur inconnue" (chunked) pour HttpServer ; -1 = pas de corps
+        exchange.sendResponseHeaders(200, content.length > 0 ? content.length : -1);
+        if (content.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                writeContent(out, corrupt(content, 0, content.length), 0, content.length);
+            }
+        }
+    }
+
+    /**
+     * Simule une altération en transit : selon {@code --corruption-rate}, renvoie une copie
+     * dont un octet de la plage {@code [offset, offset + length)} est inversé.
+     */
+    private byte[] corrupt(byte[] content, int offset, int length) {
+        if (corruptionRate <= 0 || length <= 0 || ThreadLocalRandom.current().nextDouble() >= corruptionRate) {
+            return content;
+        }
+        byte[] altered = content.clone();
+        altered[offset + ThreadLocalRandom.current().nextInt(length)] ^= (byte) 0xFF;
+        return altered;
+    }
+
+    /**
+     * Écrit le contenu d'un téléchargement, par tranches espacées si {@code --connection-rate} est fixé.
+     */
+    private void writeContent(OutputStream out, byte[] content, int offset, int length) throws IOException {
+        long rate = connectionRate;
+        if (rate <= 0) {
+            out.write(content, offset, length);
+            return;
+        }
+        int slice = (int) Math.max(1024, Math.min(64 * 1024, rate / 20));
+        long started = System.nanoTime();
+        for (int written = 0; written < length; written += slice) {
+            out.write(content, offset + written, Math.min(slice, length - written));
+            long due = started + (long) ((written + slice) * 1e9 / rate);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Envoi interrompu");
+                }
+            }
+        }
+    }
+
+    /**
+     * Plage unique {@code bytes=debut-fin}, {@code bytes=debut-} ou {@code bytes=-suffixe}.
+     * @return premier et dernier octet inclus, ou null si la plage n'est pas satisfiable
+     */
+    private static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), size - 1);
+            }
+            return start <= end && start < size ? new long[] {start, end} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Taille de bloc des signatures : environ la racine de 12 × la taille du fichier, ce qui équilibre
+     * le volume des signatures (12 octets par bloc) et celui des données renvoyées autour d'une
+     * modification. Dépend uniquement de la taille : le delta reçu se relit avec la même valeur.
+     */
+    private static int deltaBlockSize(long size) {
+        long blockSize = (long) Math.sqrt(12.0 * size);
+        blockSize = (blockSize + 1023) / 1024 * 1024;
+        return (int) Math.max(2 * 1024, Math.min(blockSize, 256 * 1024));
+    }
+
+    private void sendSignatures(HttpExchange exchange, int fileId) throws IOException {
+        StoredFile file = files.get(fileId);
+        if (file == null) {
+            sendJson(exchange, 404, Map.of("error", "Fichier inconnu"));
+            return;
+        }
+        byte[] content;
+        int version;
+        synchronized (file) {
+            content = file.content;
+            version = file.version;
+        }
+        int blockSize = deltaBlockSize(content.length);
+        int count = (int) ((content.length + (long) blockSize - 1) / blockSize);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(24 + 12 * count);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(version);
+        out.writeLong(content.length);
+        out.writeInt(blockSize);
+        out.writeInt(count);
+        RollingChecksum checksum = new RollingChecksum();
+        for (int i = 0; i < count; i++) {
+            int offset = i * blockSize;
+            int length = Math.min(blockSize, content.length - offset);
+            checksum.reset(content, offset, length);
+            out.writeInt(checksum.weak());
+            out.writeLong(checksum.strong(content, offset, length));
+        }
+        out.flush();
+
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.sendResponseHeaders(200, bytes.size());
+        try (OutputStream response = exchange.getResponseBody()) {
+            bytes.writeTo(response);
+        }
+    }
+
+    /**
+     * Reconstruit la nouvelle version à partir de la version actuelle et du delta, puis vérifie
+     * son SHA-256 avant de l'enregistrer.
+     */
+    private void applyDelta(HttpExchange exchange, int fileId) throws IOException {
+        StoredFile file = files.get(fileId);
+        if (file == null) {
+            sendJson(exchange, 404, Map.of("error", "Fichier inconnu"));
+            return;
+        }
+        String baseHeader = exchange.getRequestHeaders().getFirst("X-Base-Version");
+        byte[] base;
+        int baseVersion;
+        synchronized (file) {
+            base = file.content;
+            baseVersion = file.version;
+        }
+        if (baseHeader == null || Integer.parseInt(baseHeader.trim()) != baseVersion) {
+            sendJson(exchange, 409, Map.of("error", "Version de base périmée", "current_version", baseVersion));
+            return;
+        }
+
+        int blockSize = deltaBlockSize(base.length);
+        ByteArrayOutputStream content = new ByteArrayOutputStream(base.length);
+        byte[] expectedHash = null;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(exchange.getRequestBody()));
+        while (expectedHash == null) {
+            int op = in.readUnsignedByte();
+            if (op == 'C') {
+                long start = (long) in.readInt() * blockSize;
+                long end = Math.min(start + (long) in.readInt() * blockSize, base.length);
+                if (start < 0 || start >= end) {
+                    sendJson(exchange, 400, Map.of("error", "Référence de bloc invalide"));
+                    return;
+                }
+                content.write(base, (int) start, (int) (end - start));
+            } else if (op == 'D') {
+                int length = in.readInt();
+                content.write(in.readNBytes(length));
+            } else if (op == 'E') {
+                expectedHash = in.readNBytes(32);
+            } else {
+                sendJson(exchange, 400, Map.of("error", "Opération de delta inconnue: " + op));
+                return;
+            }
+        }
+        byte[] result = content.toByteArray();
+        byte[] actualHash;
+        try {
+            actualHash = MessageDigest.getInstance("SHA-256").digest(result);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        if (!Arrays.equals(expectedHash, actualHash)) {
+            sendJson(exchange, 400, Map.of("error", "Empreinte du fichier reconstruit incorrecte"));
+            return;
+        }
+
+        int version;
+        synchronized (file) {
+            if (file.version != baseVersion) {
+                sendJson(exchange, 409, Map.of("error", "Version de base périmée", "current_version", file.version));
+                return;
+            }
+            file.content = result;
+            file.sha256 = null;
+            file.version++;
+            file.uploadedAt = Instant.now();
+            version = file.version;
+        }
+        recordChange("upsert", "file", file.id, file);
+        sendCreated(exchange, Map.of("id", file.id, "version", version, "size", result.length));
+    }
+
+    private void openUpload(HttpExchange exchange) throws IOException {
+        JsonNode body = jsonMapper.readTree(exchange.getRequestBody());
+        long size = body.path("size").asLong(-1);
+        if (size < 0 || body.path("filename").asText("").isBlank()) {
+            sendJson(exchange, 400, Map.of("error", "filename et size attendus"));
+            return;
+        }
+        PendingUpload upload = new PendingUpload();
+        upload.id = UUID.randomUUID().toString();
+        upload.filename = body.get("filename").asText();
+        upload.size = size;
+        upload.folderId = body.hasNonNull("folder_id") ? body.get("folder_id").asInt() : null;
+        // Le serveur borne la taille des blocs demandée par le client
+        upload.chunkSize = Math.max(64 * 1024, Math.min(body.path("chunk_size").asInt(8 * 1024 * 1024), 64 * 1024 * 1024));
+        uploads.put(upload.id, upload);
+        sendCreated(exchange, Map.of("upload_id", upload.id, "chunk_size", upload.chunkSize));
+    }
+
+    private void sendUploadStatus(HttpExchange exchange, String uploadId) throws IOException {
+        PendingUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            sendJson(exchange, 404, Map.of("error", "Upload inconnu ou expiré"));
+            return;
+        }
+        sendJson(exchange, 200, Map.of(
+            "upload_id", upload.id,
+            "size", upload.size,
+            "chunk_size", upload.chunkSize,
+            "received_chunks", new ArrayList<>(upload.chunks.keySet())));
+    }
+
+    private void receiveChunk(HttpExchange exchange, String uploadId, int index) throws IOException {
+        PendingUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            sendJson(exchange, 404, Map.of("error", "Upload inconnu ou expiré"));
+            return;
+        }
+        byte[] content = readAll(exchange.getRequestBody());
+        long expected = index < 0 || index >= upload.chunkCount() ? -1
+            : Math.min(upload.chunkSize, upload.size - (long) index * upload.chunkSize);
+        if (content.length != expected) {
+            sendJson(exchange, 400, Map.of("error", "Bloc " + index + " invalide (" + content.length + " octets)"));
+            return;
+        }
+        content = corrupt(content, 0, content.length);
+        upload.chunks.put(index, content);
+        sendJson(exchange, 200, Map.of("received", index, "sha256", sha256(content)));
+    }
+
+    private void commitUpload(HttpExchange exchange, String uploadId) throws IOException {
+        PendingUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            sendJson(exchange, 404, Map.of("error", "Upload inconnu ou expiré"));
+            return;
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < upload.chunkCount(); i++) {
+            if (!upload.chunks.containsKey(i)) {
+                missing.add(i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            sendJson(exchange, 409, Map.of("error", "Blocs manquants", "missing", missing));
+            return;
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream((int) upload.size);
+        for (byte[] chunk : upload.chunks.values()) {
+            content.write(chunk);
+        }
+        StoredFile file = new StoredFile();
+        file.id = nextFileId.getAndIncrement();
+        file.name = upload.filename;
+        file.folderId = upload.folderId;
+        file.content = content.toByteArray();
+        file.uploadedAt = Instant.now();
+        files.put(file.id, file);
+        uploads.remove(uploadId);
+        recordChange("upsert", "file", file.id, file);
+        sendCreated(exchange, Map.of("id", file.id, "size", file.content.length, "sha256", file.sha256()));
+    }
+
+    private static String sha256(byte[] content) {
+        return HexFormat.of().formatHex(sha256Bytes(content, 0, content.length));
+    }
+
+    private static byte[] sha256Bytes(byte[] content, int offset, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content, offset, length);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, Part> parseMultipart(byte[] body, String boundary) {
+        Map<String, Part> parts = new HashMap<>();
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        int start = indexOf(body, delimiter, 0);
+        while (start >= 0) {
+            int headersStart = start + delimiter.length + 2;
+            int headersEnd = indexOf(body, "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1), headersStart);
+            int next = indexOf(body, delimiter, headersStart);
+            if (headersEnd < 0 || next < 0) break;
+
+            String headers = new String(body, headersStart, headersEnd - headersStart, StandardCharsets.UTF_8);
+            Part part = new Part();
+            part.name = headerParameter(headers, "name");
+            part.filename = headerParameter(headers, "filename");
+            int contentStart = headersEnd + 4;
+            int contentEnd = next - 2; // CRLF avant le délimiteur
+            part.content = java.util.Arrays.copyOfRange(body, contentStart, Math.max(contentStart, contentEnd));
+            if (part.name != null) {
+                parts.put(part.name, part);
+            }
+            start = next;
+        }
+        return parts;
+    }
+
+    private static String headerParameter(String headers, String parameter) {
+        String marker = " " + parameter + "=\"";
+        int index = headers.indexOf(marker);
+        if (index < 0) {
+            marker = ";" + parameter + "=\"";
+            index = headers.indexOf(marker);
+        }
+        if (index < 0) return null;
+        int end = headers.indexOf('"', index + marker.length());
+        return end < 0 ? null : headers.substring(index + marker.length(), end);
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        outer:
+        for (int i = Math.max(0, from); i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.transferTo(out);
+        return out.toByteArray();
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> query = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) return query;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(java.net.URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                          java.net.URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Répond 201 et mémorise la réponse pour les nouveaux essais portant la même clé d'idempotence.
+     */
+    private void sendCreated(HttpExchange exchange, Map<String, Object> body) throws IOException {
+        String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        if (idempotencyKey != null) {
+            idempotentResponses.put(idempotencyKey, body);
+        }
+        sendJson(exchange, 201, body);
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = jsonMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private interface Listable {
+        int id();
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private static class Folder implements Listable {
+        int id;
+        String name;
+        Integer parentId;
+
+        public int id() { return id; }
+
+        public void write(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", id);
+            generator.writeStringField("name", name);
+            if (parentId != null) {
+                generator.writeNumberField("parent_id", parentId);
+            } else {
+                generator.writeNullField("parent_id");
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static class StoredFile implements Listable {
+        int id;
+        String name;
+        Integer folderId;
+        byte[] content;
+        Instant uploadedAt;
+        int version = 1;
+        private String sha256;
+
+        public int id() { return id; }
+
+        /** Empreinte du contenu, calculée à la première demande */
+        synchronized String sha256() {
+            if (sha256 == null) {
+                sha256 = StandInServer.sha256(content);
+            }
+            return sha256;
+        }
+
+        public void write(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", id);
+            generator.writeStringField("filename", name);
+            generator.writeNumberField("size", content.length);
+            if (folderId != null) {
+                generator.writeNumberField("folder_id", folderId);
+            } else {
+                generator.writeNullField("folder_id");
+            }
+            generator.writeStringField("uploaded_at", uploadedAt.toString());
+            generator.writeNumberField("current_version", version);
+            generator.writeEndObject();
+        }
+    }
+
+    private static class PendingUpload {
+        String id;
+        String filename;
+        long size;
+        Integer folderId;
+        int chunkSize;
+        final NavigableMap<Integer, byte[]> chunks = new ConcurrentSkipListMap<>();
+
+        int chunkCount() {
+            return (int) ((size + chunkSize - 1) / chunkSize);
+        }
+    }
+
+    private static class ChangeRecord {
+        final long seq;
+        final String op;
+        final String type;
+        final int id;
+        final Listable item;
+
+        ChangeRecord(long seq, String op, String type, int id, Listable item) {
+            this.seq = seq;
+            this.op = op;
+            this.type = type;
+            this.id = id;
+            this.item = item;
+        }
+    }
+
+    private static class Part {
+        String name;
+        String filename;
+        byte[] content;
+    }
+}
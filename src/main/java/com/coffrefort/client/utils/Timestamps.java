@@ -0,0 +1,100 @@
+package com.coffrefort.client.utils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Lecture rapide des horodatages ISO-8601 renvoyés par l'API
+ * (ex. {@code 2024-03-01T10:15:30Z}, {@code 2024-03-01T10:15:30.123+01:00}).
+ *
+ * Contrairement à {@link Instant#parse(CharSequence)}, une valeur invalide ne lève
+ * pas d'exception : la méthode renvoie {@code null}. Sur de grosses listes de
+ * fichiers, cela évite le coût d'un try/catch (et de la pile d'exception) par ligne.
+ */
+public final class Timestamps {
+
+    private Timestamps() {
+    }
+
+    /**
+     * @return l'instant correspondant, ou {@code null} si la valeur n'est pas un horodatage ISO-8601 avec fuseau
+     */
+    public static Instant parseIsoInstant(String text) {
+        if (text == null) return null;
+        int len = text.length();
+        // yyyy-MM-ddTHH:mm:ss + au moins "Z"
+        if (len < 20) return null;
+
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return null;
+        }
+        char separator = text.charAt(10);
+        if (separator != 'T' && separator != 't') return null;
+        if (day > LocalDate.of(year, month, 1).lengthOfMonth()) return null;
+
+        // Fraction de seconde optionnelle (jusqu'à 9 chiffres)
+        int pos = 19;
+        int nanos = 0;
+        if (pos < len && text.charAt(pos) == '.') {
+            pos++;
+            int start = pos;
+            while (pos < len && isDigit(text.charAt(pos))) {
+                if (pos - start < 9) {
+                    nanos = nanos * 10 + (text.charAt(pos) - '0');
+                }
+                pos++;
+            }
+            int count = pos - start;
+            if (count == 0) return null;
+            for (int i = count; i < 9; i++) {
+                nanos *= 10;
+            }
+        }
+
+        // Fuseau : Z ou ±HH:mm
+        if (pos >= len) return null;
+        int offsetSeconds;
+        char zone = text.charAt(pos);
+        if ((zone == 'Z' || zone == 'z') && pos + 1 == len) {
+            offsetSeconds = 0;
+        } else if ((zone == '+' || zone == '-') && pos + 6 == len && text.charAt(pos + 3) == ':') {
+            int offsetHours = digits(text, pos + 1, 2);
+            int offsetMinutes = digits(text, pos + 4, 2);
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) return null;
+            offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (zone == '-' ? -1 : 1);
+        } else {
+            return null;
+        }
+
+        long epochDay = LocalDate.of(year, month, day).toEpochDay();
+        long epochSecond = epochDay * 86400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return Instant.ofEpochSecond(epochSecond, nanos);
+    }
+
+    /**
+     * Lit {@code count} chiffres à partir de {@code start}, ou renvoie -1.
+     */
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}